@@ -0,0 +1,413 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Micro-benchmarks for gitlet internals. Usage:
+ * java gitlet.Benchmark layout [COUNT]
+ * java gitlet.Benchmark merge [PATHS]
+ * java gitlet.Benchmark mergebase [ROUNDS]
+ * Each benchmark works in a scratch directory under the system
+ * temporary directory and removes it when done.
+ *
+ * @author Tony Hsu
+ */
+public class Benchmark {
+
+    /**
+     * number of lookups timed per benchmark.
+     */
+    private static final int LOOKUPS = 10000;
+    /**
+     * length of an abbreviated commit ID.
+     */
+    private static final int SHORT_ID = 7;
+
+    /**
+     * Run the benchmark named by ARGS[0].
+     *
+     * @param args String[]
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java gitlet.Benchmark "
+                    + "layout|merge|mergebase [COUNT]");
+            return;
+        }
+        switch (args[0]) {
+        case "layout":
+            layout(count(args, 1, 1000000));
+            break;
+        case "merge":
+            merge(count(args, 1, 1000000));
+            break;
+        case "mergebase":
+            mergeBase(count(args, 1, 2000));
+            break;
+        default:
+            System.out.println("No benchmark with that name exists.");
+        }
+    }
+
+    /**
+     * Compare exact and abbreviated lookups of COUNT loose objects in
+     * the flat and the fan-out layouts.
+     *
+     * @param count int
+     */
+    static void layout(int count) throws IOException {
+        File scratch = Files.createTempDirectory("gitlet-bench").toFile();
+        try {
+            String flat = new File(scratch, "flat").getPath() + "/";
+            String sharded = new File(scratch, "sharded").getPath() + "/";
+            new File(flat).mkdirs();
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < count; i += 1) {
+                String id = Utils.sha1(Integer.toString(i));
+                ids.add(id);
+                new File(flat + id).createNewFile();
+                ObjectLayout.newFile(sharded, id).createNewFile();
+            }
+            Random random = new Random(0);
+            List<String> sample = new ArrayList<>();
+            for (int i = 0; i < LOOKUPS; i += 1) {
+                sample.add(ids.get(random.nextInt(count)));
+            }
+            report("flat exact", time(sample, flat, false), sample.size());
+            report("fan-out exact", time(sample, sharded, false),
+                    sample.size());
+            List<String> few = sample.subList(0, Math.min(100, LOOKUPS));
+            report("flat prefix", time(few, flat, true), few.size());
+            report("fan-out prefix", time(few, sharded, true), few.size());
+        } finally {
+            delete(scratch);
+        }
+    }
+
+    /**
+     * Compare planning a merge of PATHS files by hash lookups over the
+     * union of all names with the merge-join of MergeClassifier, and
+     * check that both plans agree. Each side changes, deletes and adds
+     * about 1% of the files, and some changes overlap.
+     *
+     * @param paths int
+     */
+    static void merge(int paths) {
+        Random random = new Random(0);
+        HashMap<String, String> split = new HashMap<>();
+        for (int i = 0; i < paths; i += 1) {
+            split.put(String.format("dir%03d/file%07d.txt", i % 1000, i),
+                    Utils.sha1(Integer.toString(i)));
+        }
+        HashMap<String, String> current = mutate(split, random, "c");
+        HashMap<String, String> given = mutate(split, random, "g");
+
+        long start = System.nanoTime();
+        Stages byLookup = new Stages(null);
+        byLookup.initMerge();
+        boolean lookupConflict = classifyByLookup(split, current, given,
+                byLookup);
+        report("lookup classify", System.nanoTime() - start, 1);
+
+        start = System.nanoTime();
+        PathTable[] tables = {PathTable.of(split), PathTable.of(current),
+            PathTable.of(given)};
+        report("table build", System.nanoTime() - start, 1);
+        start = System.nanoTime();
+        Stages byJoin = new Stages(null);
+        byJoin.initMerge();
+        boolean joinConflict = MergeClassifier.classify(tables[0],
+                tables[1], tables[2], byJoin);
+        report("join classify", System.nanoTime() - start, 1);
+
+        if (lookupConflict != joinConflict
+                || !samePlan(byLookup, byJoin)) {
+            throw Utils.error("merge plans differ");
+        }
+        System.out.println(byJoin.getMergeConflicts().size()
+                + " conflicts, plans agree.");
+    }
+
+    /**
+     * Return a copy of BASE with about 1% of its files changed, 1%
+     * deleted and 1% added, using TAG to make new IDs distinct.
+     *
+     * @param base   Map
+     * @param random Random
+     * @param tag    String
+     * @return HashMap
+     */
+    private static HashMap<String, String> mutate(Map<String, String> base,
+                                                  Random random,
+                                                  String tag) {
+        HashMap<String, String> result = new HashMap<>();
+        for (Map.Entry<String, String> e : base.entrySet()) {
+            int dice = random.nextInt(100);
+            if (dice == 0) {
+                result.put(e.getKey(), Utils.sha1(tag, e.getKey()));
+            } else if (dice == 1) {
+                result.put(e.getKey() + ".new", Utils.sha1(e.getKey()));
+            } else if (dice == 2) {
+                result.put(e.getKey(), Utils.sha1("both", e.getKey()));
+            } else if (dice != 3) {
+                result.put(e.getKey(), e.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Plan a merge into PLAN the way gitlet did before MergeClassifier:
+     * build the union of all names, then look each name up in SPLIT,
+     * CURRENT and GIVEN. Returns whether any file conflicts.
+     *
+     * @param split   Map
+     * @param current Map
+     * @param given   Map
+     * @param plan    Stages
+     * @return boolean
+     */
+    static boolean classifyByLookup(Map<String, String> split,
+                                    Map<String, String> current,
+                                    Map<String, String> given, Stages plan) {
+        HashSet<String> allFiles = new HashSet<>(given.keySet());
+        allFiles.addAll(split.keySet());
+        allFiles.addAll(current.keySet());
+        boolean conflict = false;
+        for (String name : allFiles) {
+            String splitID = split.get(name);
+            String curID = current.get(name);
+            String givenID = given.get(name);
+            boolean inCur = current.containsKey(name);
+            boolean inGiven = given.containsKey(name);
+            boolean conflicting = false;
+            if (splitID != null) {
+                if (inCur && inGiven) {
+                    if (splitID.equals(givenID) || curID.equals(givenID)) {
+                        plan.getStagedFiles().put(name, curID);
+                    } else if (splitID.equals(curID)) {
+                        plan.getStagedFiles().put(name, givenID);
+                        plan.getMergeCheckOutFiles().put(name, givenID);
+                    } else {
+                        conflicting = true;
+                    }
+                } else if (inCur) {
+                    if (splitID.equals(curID)) {
+                        plan.getRemovingFiles().add(name);
+                    } else {
+                        conflicting = true;
+                    }
+                } else if (inGiven) {
+                    conflicting = !splitID.equals(givenID);
+                }
+            } else if (inCur && inGiven) {
+                if (curID.equals(givenID)) {
+                    plan.getStagedFiles().put(name, givenID);
+                } else {
+                    conflicting = true;
+                }
+            } else if (inCur) {
+                plan.getStagedFiles().put(name, curID);
+            } else {
+                plan.getStagedFiles().put(name, givenID);
+                plan.getMergeCheckOutFiles().put(name, givenID);
+            }
+            if (conflicting) {
+                plan.getMergeConflicts().put(name,
+                        new String[] {curID, givenID});
+                conflict = true;
+            }
+        }
+        return conflict;
+    }
+
+    /**
+     * Return whether merge plans A and B are the same.
+     *
+     * @param a Stages
+     * @param b Stages
+     * @return boolean
+     */
+    static boolean samePlan(Stages a, Stages b) {
+        if (!a.getStagedFiles().equals(b.getStagedFiles())
+                || !a.getMergeCheckOutFiles().equals(
+                        b.getMergeCheckOutFiles())
+                || !a.getRemovingFiles().equals(b.getRemovingFiles())
+                || !a.getMergeConflicts().keySet().equals(
+                        b.getMergeConflicts().keySet())) {
+            return false;
+        }
+        for (String name : a.getMergeConflicts().keySet()) {
+            if (!Arrays.equals(a.getMergeConflicts().get(name),
+                    b.getMergeConflicts().get(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare the first-parent split point with MergeBase on a
+     * synthetic history of ROUNDS rounds, in each of which two
+     * branches make a few commits and then merge each other, a
+     * criss-cross. Reports how far below the heads each result is.
+     *
+     * @param rounds int
+     */
+    static void mergeBase(int rounds) {
+        HashMap<String, List<String>> parents = new HashMap<>();
+        String a = "c0";
+        parents.put(a, new ArrayList<>());
+        String b = a;
+        int n = 1;
+        for (int round = 0; round < rounds; round += 1) {
+            for (int i = 0; i < 3; i += 1) {
+                parents.put("c" + n, Arrays.asList(a));
+                a = "c" + n++;
+                parents.put("c" + n, Arrays.asList(b));
+                b = "c" + n++;
+            }
+            parents.put("c" + n, Arrays.asList(a, b));
+            parents.put("c" + (n + 1), Arrays.asList(b, a));
+            a = "c" + n++;
+            b = "c" + n++;
+        }
+        System.out.println(n + " commits");
+
+        long start = System.nanoTime();
+        String firstParent = firstParentSplit(parents, a, b);
+        report("first-parent", System.nanoTime() - start, 1);
+        MergeBase bases = new MergeBase(parents::get, false);
+        start = System.nanoTime();
+        List<String> found = bases.bases(a, b);
+        report("merge-base", System.nanoTime() - start, 1);
+        start = System.nanoTime();
+        bases.bases(b, a);
+        report("merge-base cached", System.nanoTime() - start, 1);
+
+        int head = bases.generation(a);
+        System.out.print("first-parent base " + (head
+                - bases.generation(firstParent)) + " generations down, ");
+        System.out.print(found.size() + " merge bases");
+        for (String id : found) {
+            System.out.print(" " + (head - bases.generation(id)));
+        }
+        System.out.println(" generations down.");
+    }
+
+    /**
+     * Return the first commit on the first-parent chain of GIVEN that
+     * is on the first-parent chain of CUR in the history PARENTS, the
+     * way split points were found before MergeBase.
+     *
+     * @param parents Map
+     * @param cur     String
+     * @param given   String
+     * @return String
+     */
+    private static String firstParentSplit(Map<String, List<String>> parents,
+                                           String cur, String given) {
+        ArrayList<String> curHistory = new ArrayList<>();
+        for (String id = cur; id != null; id = firstParent(parents, id)) {
+            curHistory.add(id);
+        }
+        for (String id = given; id != null; id = firstParent(parents, id)) {
+            if (curHistory.contains(id)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the first parent of commit ID in the history PARENTS, or
+     * null.
+     *
+     * @param parents Map
+     * @param id      String
+     * @return String
+     */
+    private static String firstParent(Map<String, List<String>> parents,
+                                      String id) {
+        List<String> list = parents.get(id);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    /**
+     * Return the nanoseconds taken to look up every ID of SAMPLE in
+     * DIR, by abbreviated ID if PREFIX.
+     *
+     * @param sample List
+     * @param dir    String
+     * @param prefix boolean
+     * @return long
+     */
+    private static long time(List<String> sample, String dir,
+                             boolean prefix) {
+        long start = System.nanoTime();
+        for (String id : sample) {
+            boolean found;
+            if (prefix) {
+                found = !ObjectLayout.idsWithPrefix(dir,
+                        id.substring(0, SHORT_ID)).isEmpty();
+            } else {
+                found = ObjectLayout.exists(dir, id);
+            }
+            if (!found) {
+                throw Utils.error("lost object %s", id);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Recursively delete FILE.
+     *
+     * @param file File
+     */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Print the mean latency of N operations taking NANOS in total.
+     *
+     * @param name  String
+     * @param nanos long
+     * @param n     int
+     */
+    private static void report(String name, long nanos, int n) {
+        System.out.printf("%-16s %10.1f us/op%n", name, nanos / 1000.0 / n);
+    }
+
+    /**
+     * Return ARGS[I] as an integer, or DEFAULTVALUE if absent.
+     *
+     * @param args         String[]
+     * @param i            int
+     * @param defaultValue int
+     * @return int
+     */
+    private static int count(String[] args, int i, int defaultValue) {
+        if (args.length > i) {
+            return Integer.parseInt(args[i]);
+        }
+        return defaultValue;
+    }
+
+}
@@ -0,0 +1,287 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which commit last changed each line of a file, found by walking the
+ * first-parent history back from a commit that has the file.
+ *
+ * The walk carries a line map: for each line of the file as of the
+ * commit reached, the line of the blamed file it became, or -1 once
+ * that line is blamed. A commit whose blob for the path is the same as
+ * its parent's is passed over by comparing blob IDs, and often by its
+ * changed-path filter alone without loading it. Only where the blob
+ * changes are the two versions read and diffed, with the linear-space
+ * form of Myers' algorithm: lines the parent lacks are blamed on the
+ * commit and the others are mapped onto the parent's lines. The walk
+ * stops as soon as every line is blamed, or at the commit that added
+ * the file or the start of the history.
+ *
+ * Results are kept in the metadata index by commit and path. A walk
+ * that reaches a commit already blamed for the path finishes from that
+ * result, so blaming a new head only diffs the changes made since.
+ *
+ * @author Tony Hsu
+ */
+class Blame {
+
+    /**
+     * Return the ID of the commit that last changed each line of file
+     * PATH as of commit HEAD, which must have it.
+     *
+     * @param head String
+     * @param path String
+     * @return String[]
+     */
+    static String[] blame(String head, String path) {
+        MetaIndex meta = Storage.meta();
+        String[] known = meta == null ? null : meta.blame(head, path);
+        if (known != null) {
+            return known;
+        }
+        List<String> lines = lines(
+                Git.deserializeCommit(head).getBlobsID(path));
+        String[] result = new String[lines.size()];
+        int[] map = new int[lines.size()];
+        for (int i = 0; i < map.length; i += 1) {
+            map[i] = i;
+        }
+        int left = map.length;
+        String id = head;
+        while (left > 0) {
+            String[] cached = id.equals(head) || meta == null ? null
+                    : meta.blame(id, path);
+            String parent = Shallow.isGrafted(id) ? null
+                    : CommitInfo.load(id).getParent();
+            if (cached != null || parent == null) {
+                for (int j = 0; j < map.length; j += 1) {
+                    if (map[j] >= 0) {
+                        result[map[j]] = cached != null ? cached[j] : id;
+                    }
+                }
+                break;
+            }
+            if (!PathFilter.touches(id, path)) {
+                id = parent;
+                continue;
+            }
+            String parentBlob =
+                    Git.deserializeCommit(parent).getBlobsID(path);
+            List<String> older = parentBlob == null ? new ArrayList<>()
+                    : lines(parentBlob);
+            int[] matched = match(older, lines);
+            int[] next = new int[older.size()];
+            Arrays.fill(next, -1);
+            for (int j = 0; j < map.length; j += 1) {
+                if (map[j] < 0) {
+                    continue;
+                } else if (matched[j] >= 0) {
+                    next[matched[j]] = map[j];
+                } else {
+                    result[map[j]] = id;
+                    left -= 1;
+                }
+            }
+            map = next;
+            lines = older;
+            id = parent;
+        }
+        if (meta != null) {
+            meta.recordBlame(head, path, result);
+        }
+        return result;
+    }
+
+    /**
+     * Return the lines of blob ID, without their line ends.
+     *
+     * @param id String
+     * @return List
+     */
+    static List<String> lines(String id) {
+        String text = new String(Blobs.read(id), StandardCharsets.UTF_8);
+        List<String> result = new ArrayList<>(
+                Arrays.asList(text.split("\n", -1)));
+        if (result.get(result.size() - 1).isEmpty()) {
+            result.remove(result.size() - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Return, for each line of AFTER, the index of the line of BEFORE
+     * it is kept from in a shortest edit script, or -1 if it is new.
+     *
+     * @param before List
+     * @param after  List
+     * @return int[]
+     */
+    static int[] match(List<String> before, List<String> after) {
+        Map<String, Integer> numbers = new HashMap<>();
+        int[] a = intern(before, numbers);
+        int[] b = intern(after, numbers);
+        int[] result = new int[b.length];
+        Arrays.fill(result, -1);
+        new Diff(a, b, result).compare(0, a.length, 0, b.length);
+        return result;
+    }
+
+    /**
+     * Return LINES as numbers, equal lines having equal numbers as
+     * given by NUMBERS.
+     *
+     * @param lines   List
+     * @param numbers Map
+     * @return int[]
+     */
+    private static int[] intern(List<String> lines,
+                                Map<String, Integer> numbers) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = numbers.computeIfAbsent(lines.get(i),
+                    line -> numbers.size());
+        }
+        return result;
+    }
+
+    /**
+     * Myers' O(ND) difference algorithm in linear space: find the
+     * middle snake of a shortest edit script, then solve the two
+     * halves on either side of it.
+     */
+    private static class Diff {
+        /**
+         * the old lines.
+         */
+        private final int[] a;
+        /**
+         * the new lines.
+         */
+        private final int[] b;
+        /**
+         * for each new line, the old line kept as it, or -1.
+         */
+        private final int[] matches;
+        /**
+         * furthest reaching x of each diagonal, searching forward.
+         */
+        private final int[] forward;
+        /**
+         * furthest reaching x of each diagonal, searching backward.
+         */
+        private final int[] backward;
+
+        /**
+         * Diff constructor.
+         *
+         * @param before int[]
+         * @param after  int[]
+         * @param result int[]
+         */
+        Diff(int[] before, int[] after, int[] result) {
+            a = before;
+            b = after;
+            matches = result;
+            int size = 2 * (a.length + b.length) + 3;
+            forward = new int[size];
+            backward = new int[size];
+        }
+
+        /**
+         * Match the lines of A[ALO..AHI) and B[BLO..BHI).
+         *
+         * @param aLo int
+         * @param aHi int
+         * @param bLo int
+         * @param bHi int
+         */
+        void compare(int aLo, int aHi, int bLo, int bHi) {
+            while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+                matches[bLo] = aLo;
+                aLo += 1;
+                bLo += 1;
+            }
+            while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+                matches[bHi - 1] = aHi - 1;
+                aHi -= 1;
+                bHi -= 1;
+            }
+            if (aLo == aHi || bLo == bHi) {
+                return;
+            }
+            int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+            compare(aLo, snake[0], bLo, snake[1]);
+            for (int x = snake[0], y = snake[1]; x < snake[2];
+                 x += 1, y += 1) {
+                matches[y] = x;
+            }
+            compare(snake[2], aHi, snake[3], bHi);
+        }
+
+        /**
+         * Return the start and end, as {x, y, u, v}, of the middle
+         * snake of A[ALO..AHI) and B[BLO..BHI), which differ at both
+         * ends.
+         *
+         * @param aLo int
+         * @param aHi int
+         * @param bLo int
+         * @param bHi int
+         * @return int[]
+         */
+        private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+            int n = aHi - aLo;
+            int m = bHi - bLo;
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+            int max = (n + m + 1) / 2;
+            int off = max + 1;
+            forward[off + 1] = 0;
+            backward[off + 1] = 0;
+            for (int d = 0; d <= max; d += 1) {
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || k != d
+                            && forward[off + k - 1] < forward[off + k + 1]
+                            ? forward[off + k + 1] : forward[off + k - 1] + 1;
+                    int x0 = x;
+                    while (x < n && x - k < m
+                            && a[aLo + x] == b[bLo + x - k]) {
+                        x += 1;
+                    }
+                    forward[off + k] = x;
+                    int back = delta - k;
+                    if (odd && back >= -(d - 1) && back <= d - 1
+                            && x + backward[off + back] >= n) {
+                        return new int[] {aLo + x0, bLo + x0 - k,
+                            aLo + x, bLo + x - k};
+                    }
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || k != d
+                            && backward[off + k - 1] < backward[off + k + 1]
+                            ? backward[off + k + 1]
+                            : backward[off + k - 1] + 1;
+                    int x0 = x;
+                    while (x < n && x - k < m
+                            && a[aHi - 1 - x] == b[bHi - 1 - x + k]) {
+                        x += 1;
+                    }
+                    backward[off + k] = x;
+                    int ahead = delta - k;
+                    if (!odd && ahead >= -d && ahead <= d
+                            && x + forward[off + ahead] >= n) {
+                        return new int[] {aHi - x, bHi - x + k,
+                            aHi - x0, bHi - x0 + k};
+                    }
+                }
+            }
+            throw Utils.error("no middle snake");
+        }
+    }
+
+}
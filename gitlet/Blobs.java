@@ -0,0 +1,377 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Storing and restoring file contents as blobs. Blob IDs are the
+ * SHA-1 of a file's contents followed by its name, computed by
+ * streaming the file. Files of at least LARGE_FILE bytes are split
+ * into content-defined chunks with a gear rolling hash; each chunk is
+ * stored once under the SHA-1 of its bytes, and the blob itself holds
+ * a manifest listing them. An edit to a large file therefore only
+ * stores the chunks around the edit, and neither storing nor restoring
+ * ever holds the whole file in memory.
+ *
+ * @author Tony Hsu
+ */
+class Blobs {
+
+    /**
+     * files this large or larger are chunked.
+     */
+    static final long LARGE_FILE = 8 << 20;
+    /**
+     * smallest chunk, except at the end of a file.
+     */
+    static final int MIN_CHUNK = 256 << 10;
+    /**
+     * largest chunk.
+     */
+    static final int MAX_CHUNK = 4 << 20;
+    /**
+     * a chunk ends where the rolling hash has these bits clear, which
+     * gives chunks of about 1 MiB on average.
+     */
+    private static final long BOUNDARY_MASK = (1L << 20) - 1;
+    /**
+     * first line of every manifest. No file is stored unchunked if it
+     * starts with these bytes, so they always mark a manifest.
+     */
+    private static final byte[] MAGIC =
+            "\0gitlet chunked blob\0\n".getBytes(StandardCharsets.UTF_8);
+    /**
+     * size of stream buffers.
+     */
+    private static final int BUFFER = 1 << 16;
+    /**
+     * random byte values for the gear hash; fixed forever so chunk
+     * boundaries, and so deduplication, stay stable.
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x9e3779b97f4a7c15L);
+        for (int i = 0; i < GEAR.length; i += 1) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Return the blob ID of FILE tracked as NAME.
+     *
+     * @param file File
+     * @param name String
+     * @return String
+     */
+    static String id(File file, String name) {
+        MessageDigest md = sha1();
+        byte[] buf = new byte[BUFFER];
+        try (InputStream in = new FileInputStream(file)) {
+            for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                md.update(buf, 0, n);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        md.update(name.getBytes(StandardCharsets.UTF_8));
+        return hex(md.digest());
+    }
+
+    /**
+     * Store the contents of FILE as blob ID, unless it is already
+     * stored.
+     *
+     * @param file File
+     * @param id   String
+     * @throws IOException if FILE cannot be read
+     */
+    static void store(File file, String id) throws IOException {
+        ObjectStore store = Storage.blobs();
+        if (store.exists(id)) {
+            return;
+        }
+        if (file.length() < LARGE_FILE && !startsWithMagic(file)) {
+            store.putFile(id, file);
+            return;
+        }
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        manifest.write(MAGIC);
+        try (InputStream in = new FileInputStream(file)) {
+            Chunker chunker = new Chunker(in);
+            byte[] chunk = chunker.buffer();
+            for (int n = chunker.next(); n > 0; n = chunker.next()) {
+                byte[] data = Arrays.copyOf(chunk, n);
+                String chunkID = Utils.sha1(data);
+                if (!store.exists(chunkID)) {
+                    store.put(chunkID, data);
+                }
+                manifest.write((chunkID + " " + n + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        store.put(id, manifest.toByteArray());
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            meta.recordManifest(id);
+        }
+    }
+
+    /**
+     * Write the contents of blob ID to TARGET.
+     *
+     * @param id     String
+     * @param target File
+     * @throws IOException if the blob cannot be copied
+     */
+    static void restore(String id, File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        List<String> chunks = chunks(id);
+        if (chunks == null) {
+            Storage.blobs().copyTo(id, target);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(target)) {
+            write(chunks, out);
+        }
+    }
+
+    /**
+     * Return the contents of blob ID, or null if it is not stored.
+     *
+     * @param id String
+     * @return byte[]
+     */
+    static byte[] read(String id) {
+        List<String> chunks = chunks(id);
+        if (chunks == null) {
+            return Storage.blobs().get(id);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(chunks, out);
+        } catch (IOException e) {
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Return the chunk IDs of blob ID in order, or null if it is not
+     * a chunked blob.
+     *
+     * @param id String
+     * @return List
+     */
+    static List<String> chunks(String id) {
+        return chunks(Storage.blobs(), id);
+    }
+
+    /**
+     * Return the chunk IDs of blob ID in STORE in order, or null if it
+     * is not a chunked blob.
+     *
+     * @param store ObjectStore
+     * @param id    String
+     * @return List
+     */
+    static List<String> chunks(ObjectStore store, String id) {
+        byte[] head = new byte[MAGIC.length];
+        try (InputStream in = store.open(id)) {
+            if (readFully(in, head) < head.length
+                    || !Arrays.equals(head, MAGIC)) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        String manifest = new String(store.get(id), StandardCharsets.UTF_8);
+        ArrayList<String> result = new ArrayList<>();
+        for (String line : manifest.substring(MAGIC.length).split("\n")) {
+            if (!line.isEmpty()) {
+                result.add(line.substring(0, line.indexOf(' ')));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copy the chunks CHUNKS to OUT.
+     *
+     * @param chunks List
+     * @param out    OutputStream
+     * @throws IOException if a chunk cannot be read
+     */
+    private static void write(List<String> chunks, OutputStream out)
+            throws IOException {
+        byte[] buf = new byte[BUFFER];
+        for (String chunk : chunks) {
+            try (InputStream in = Storage.blobs().open(chunk)) {
+                for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                    out.write(buf, 0, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a stream into content-defined chunks. The stream is read
+     * in blocks straight into one MAX_CHUNK buffer and the gear hash
+     * runs over the array; bytes read past a boundary are kept for the
+     * next chunk.
+     */
+    static class Chunker {
+        /**
+         * the stream being chunked.
+         */
+        private final InputStream in;
+        /**
+         * the current chunk, followed by any bytes read past it.
+         */
+        private final byte[] buf = new byte[MAX_CHUNK];
+        /**
+         * bytes of buf read from the stream.
+         */
+        private int filled;
+        /**
+         * length of the chunk last returned.
+         */
+        private int last;
+
+        /**
+         * Chunker constructor.
+         *
+         * @param input InputStream
+         */
+        Chunker(InputStream input) {
+            in = input;
+        }
+
+        /**
+         * Return the buffer whose first bytes are the current chunk.
+         *
+         * @return byte[]
+         */
+        byte[] buffer() {
+            return buf;
+        }
+
+        /**
+         * Move to the next chunk, returning its length, or 0 at the end
+         * of the stream. Only the last 64 bytes before a position
+         * affect the hash there, so hashing starts just that far before
+         * MIN_CHUNK.
+         *
+         * @return int
+         * @throws IOException on read failure
+         */
+        int next() throws IOException {
+            System.arraycopy(buf, last, buf, 0, filled - last);
+            filled -= last;
+            long hash = 0;
+            int n = 0;
+            while (true) {
+                if (n == filled) {
+                    int read = in.read(buf, filled, MAX_CHUNK - filled);
+                    if (read < 0) {
+                        break;
+                    }
+                    filled += read;
+                }
+                if (n < MIN_CHUNK - Long.SIZE) {
+                    n = Math.min(MIN_CHUNK - Long.SIZE, filled);
+                    continue;
+                }
+                hash = (hash << 1) + GEAR[buf[n] & 0xff];
+                n += 1;
+                if (n == MAX_CHUNK
+                        || n >= MIN_CHUNK && (hash & BOUNDARY_MASK) == 0) {
+                    break;
+                }
+            }
+            last = n;
+            return n;
+        }
+    }
+
+    /**
+     * Return whether FILE starts with the manifest marker.
+     *
+     * @param file File
+     * @return boolean
+     * @throws IOException on read failure
+     */
+    private static boolean startsWithMagic(File file) throws IOException {
+        byte[] head = new byte[MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            return readFully(in, head) == head.length
+                    && Arrays.equals(head, MAGIC);
+        }
+    }
+
+    /**
+     * Read up to BUF.length bytes from IN, returning how many were read.
+     *
+     * @param in  InputStream
+     * @param buf byte[]
+     * @return int
+     * @throws IOException on read failure
+     */
+    private static int readFully(InputStream in, byte[] buf)
+            throws IOException {
+        int total = 0;
+        while (total < buf.length) {
+            int n = in.read(buf, total, buf.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Return a new SHA-1 digest.
+     *
+     * @return MessageDigest
+     */
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+
+    /**
+     * Return DIGEST as lower-case hex.
+     *
+     * @param digest byte[]
+     * @return String
+     */
+    private static String hex(byte[] digest) {
+        Formatter result = new Formatter();
+        for (byte b : digest) {
+            result.format("%02x", b);
+        }
+        return result.toString();
+    }
+
+}
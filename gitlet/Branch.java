@@ -1,10 +1,12 @@
 package gitlet;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.ObjectOutputStream;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.io.Serializable;
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
 
 
 
@@ -16,9 +18,10 @@ import java.io.IOException;
 public class Branch implements Serializable {
 
     /**
-     * path to commit.
+     * Serialization version, unchanged since the first release.
      */
-    private static String commitsPath = ".gitlet/commits/";
+    private static final long serialVersionUID = 314648618322226642L;
+
     /**
      * head commit.
      */
@@ -60,11 +63,35 @@ public class Branch implements Serializable {
     }
 
     /**
-     * Change head of commit.
+     * Get the ID of the head commit of branch.
+     *
+     * @return String.
+     */
+    public String getHeadID() {
+        return head;
+    }
+
+    /**
+     * Change head of commit, logging the move as operation OP.
      *
      * @param cur Commits
+     * @param op  char
+     */
+    public void setHead(Commit cur, char op) {
+        setHead(cur, op, Reflog.DIR);
+    }
+
+    /**
+     * Change head of commit, queueing the move as operation OP for the
+     * reflog directory LOGS, which is written once the repository has
+     * been saved.
+     *
+     * @param cur  Commits
+     * @param op   char
+     * @param logs String
      */
-    public void setHead(Commit cur) {
+    void setHead(Commit cur, char op, String logs) {
+        Reflog.queue(logs, name, head, cur.getSHA1ID(), op);
         head = cur.getSHA1ID();
     }
 
@@ -78,19 +105,46 @@ public class Branch implements Serializable {
     }
 
     /**
-     * print the current log.
-     */
-    public void printLog() {
-        Commit cur = Git.deserializeCommit(head);
-        while (true) {
-            System.out.println(cur.toString());
-            String curParent = cur.getParent();
-            cur = Git.deserializeCommit(curParent);
-            if (cur == null) {
+     * print the current log, newest first: at most MAX commits made
+     * no later than UNTIL, stopping at the first commit older than
+     * SINCE. Either date may be null. If PATH is not null, only
+     * commits that changed PATH count. Output goes through one buffered
+     * writer.
+     *
+     * @param max     int
+     * @param since   Date
+     * @param until   Date
+     * @param oneline boolean
+     * @param path    String
+     */
+    public void printLog(int max, Date since, Date until, boolean oneline,
+                         String path) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        LogWalker walker = new LogWalker(head);
+        int printed = 0;
+        while (printed < max && walker.hasNext()) {
+            CommitInfo cur = walker.next();
+            if (since != null && cur.getTime().before(since)) {
                 break;
             }
-            System.out.println("");
+            if (until != null && cur.getTime().after(until)) {
+                continue;
+            }
+            if (path != null && !PathFilter.touches(cur.getID(), path)) {
+                continue;
+            }
+            if (oneline) {
+                out.println(cur.oneline());
+            } else {
+                if (printed > 0) {
+                    out.println();
+                }
+                out.println(cur);
+            }
+            printed += 1;
         }
+        out.flush();
     }
 
     /**
@@ -101,7 +155,7 @@ public class Branch implements Serializable {
      */
     public void commitMerge(String secondParent, String secondBranch) {
         Commit temp = new Commit(curStage, secondParent, name, secondBranch);
-        head = temp.getSHA1ID();
+        setHead(temp, Reflog.MERGE);
         curStage = new Stages(temp);
         writeCommitFile(temp);
     }
@@ -116,6 +170,17 @@ public class Branch implements Serializable {
         curStage.add(newname);
     }
 
+    /**
+     * add files NEWNAMES, which exist, storing their blobs in parallel.
+     * Returns whether they were added; if not, none was.
+     *
+     * @param newnames List
+     * @return boolean
+     */
+    public boolean addFiles(List<String> newnames) {
+        return curStage.addAll(newnames);
+    }
+
     /**
      * remove a file.
      *
@@ -136,7 +201,7 @@ public class Branch implements Serializable {
             return;
         }
         Commit temp = new Commit(curStage, message);
-        head = temp.getSHA1ID();
+        setHead(temp, Reflog.COMMIT);
         curStage = new Stages(temp);
         writeCommitFile(temp);
     }
@@ -152,20 +217,17 @@ public class Branch implements Serializable {
 
 
     /**
-     * serialize the newest commit.
+     * serialize the newest commit, and queue it for the global log.
      *
      * @param cur Commit
      */
     public void writeCommitFile(Commit cur) {
-        try {
-            File gitFile = new File(commitsPath + cur.getSHA1ID());
-            ObjectOutputStream out =
-                    new ObjectOutputStream(new FileOutputStream(gitFile));
-            out.writeObject(cur);
-            out.close();
-        } catch (IOException e) {
-            System.out.println("IOException");
+        Storage.commits().put(cur.getSHA1ID(), Utils.serialize(cur));
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            meta.recordCommit(cur);
         }
+        GlobalLog.append(cur);
     }
 
 
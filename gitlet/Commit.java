@@ -1,9 +1,6 @@
 package gitlet;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.io.Serializable;
-import java.io.File;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,15 +15,11 @@ import java.util.Formatter;
 public class Commit implements Serializable {
 
     /**
-     * commits object directory.
+     * Serialization version, unchanged since the first release.
      */
-    private String commitsPath = ".gitlet/commits/";
+    private static final long serialVersionUID = 1858252708099104264L;
     /**
-     * blobs object directory.
-     */
-    private String blobsDirectory = ".gitlet/blobs/";
-    /**
-     * blobs object directory.
+     * Message of this commit.
      */
     private String message;
     /**
@@ -53,6 +46,10 @@ public class Commit implements Serializable {
      * Files that will be removed.
      */
     private TreeSet<String> removeFiles;
+    /**
+     * Compact form of blobs, built when first needed.
+     */
+    private transient PathTable pathTable;
 
     /**
      * Initial Commits constructor.
@@ -67,19 +64,6 @@ public class Commit implements Serializable {
         parent = par;
         blobs = new HashMap<>();
         sHA1ID = Utils.sha1(message, time.toString(), "", blobs.toString());
-        File blobsDir = new File(blobsDirectory);
-        File commitsDir = new File(commitsPath);
-        File globalLog = new File(".gitlet/globalLog.txt");
-        if (!blobsDir.exists()) {
-            blobsDir.mkdirs();
-            commitsDir.mkdirs();
-            try {
-                globalLog.createNewFile();
-            } catch (IOException e) {
-                System.out.println("Cannot create new File.");
-            }
-        }
-        writeGlobalLog();
     }
 
     /**
@@ -97,7 +81,6 @@ public class Commit implements Serializable {
         parent = stage.getNewestCommit().sHA1ID;
         sHA1ID = Utils.sha1(message, time.toString(), parent, blobs.toString());
         addBlobs(stage.getStagedFiles());
-        writeGlobalLog();
     }
 
     /**
@@ -116,7 +99,26 @@ public class Commit implements Serializable {
         parent = stage.getNewestCommit().sHA1ID;
         mergeParent = secondP;
         sHA1ID = Utils.sha1(message, time.toString(), parent, blobs.toString());
-        writeGlobalLog();
+    }
+
+    /**
+     * Commits constructor from a complete set of FILES, for stash
+     * entries and replayed commits.
+     *
+     * @param mess    String
+     * @param par     String
+     * @param secondP String
+     * @param files   Map
+     */
+    Commit(String mess, String par, String secondP,
+           Map<String, String> files) {
+        message = mess;
+        time = new Date();
+        blobs = new HashMap<>(files);
+        parent = par;
+        mergeParent = secondP;
+        sHA1ID = Utils.sha1(message, time.toString(), parent,
+                secondP == null ? "" : secondP, blobs.toString());
     }
 
     /**
@@ -143,6 +145,18 @@ public class Commit implements Serializable {
         return blobs;
     }
 
+    /**
+     * Get the files and their sha1ID as a sorted, compact table.
+     *
+     * @return PathTable
+     */
+    public synchronized PathTable getPathTable() {
+        if (pathTable == null) {
+            pathTable = PathTable.of(blobs);
+        }
+        return pathTable;
+    }
+
     /**
      * Get the blobs ID.
      *
@@ -153,21 +167,6 @@ public class Commit implements Serializable {
         return blobs.get(name);
     }
 
-    /**
-     * Writing global log.
-     */
-    public void writeGlobalLog() {
-        File globalLog = new File(".gitlet/globalLog.txt");
-        try {
-            FileWriter globalLogWriter = new FileWriter(globalLog, true);
-            globalLogWriter.write(this.toString());
-            globalLogWriter.write("\n");
-            globalLogWriter.flush();
-        } catch (IOException e) {
-            System.out.println("Cannot write log.");
-        }
-    }
-
     /**
      * Removing track files.
      */
@@ -188,7 +187,7 @@ public class Commit implements Serializable {
      */
     public void removeFiles(Set<String> removing) {
         for (String filename : removing) {
-            Utils.restrictedDelete(filename);
+            WorkTree.delete(filename);
         }
     }
 
@@ -248,6 +247,24 @@ public class Commit implements Serializable {
         return parent;
     }
 
+    /**
+     * Get the second parent of this commit, if it is a merge.
+     *
+     * @return String
+     */
+    public String getMergeParent() {
+        return mergeParent;
+    }
+
+    /**
+     * Get the time of this commit.
+     *
+     * @return Date
+     */
+    public Date getTime() {
+        return time;
+    }
+
     /**
      * Put the string version of this commit.
      *
@@ -255,22 +272,38 @@ public class Commit implements Serializable {
      */
     @Override
     public String toString() {
+        return format(sHA1ID, parent, mergeParent, time, message);
+    }
+
+    /**
+     * Put the log entry of a commit with the given ID, parents, time
+     * and message.
+     *
+     * @param id      String
+     * @param par     String
+     * @param secondP String
+     * @param when    Date
+     * @param mess    String
+     * @return String
+     */
+    static String format(String id, String par, String secondP,
+                         Date when, String mess) {
         StringBuilder sbuf = new StringBuilder();
         Formatter fmt = new Formatter(sbuf);
         fmt.format("Date: %ta %tb %te %tT %tY %tz",
-                time.getTime(), time.getTime(),
-                time.getTime(), time.getTime(),
-                time.getTime(), time.getTime());
+                when.getTime(), when.getTime(),
+                when.getTime(), when.getTime(),
+                when.getTime(), when.getTime());
 
         StringBuilder output = new StringBuilder();
         output.append("===\n");
-        output.append("commit " + sHA1ID + "\n");
-        if (mergeParent != null) {
-            output.append("Merge: " + parent.substring(0, 7) + " "
-                    + mergeParent.substring(0, 7) + "\n");
+        output.append("commit " + id + "\n");
+        if (secondP != null) {
+            output.append("Merge: " + par.substring(0, 7) + " "
+                    + secondP.substring(0, 7) + "\n");
         }
         output.append(fmt.toString() + "\n");
-        output.append(message);
+        output.append(mess);
         String result = output.toString();
         return result;
     }
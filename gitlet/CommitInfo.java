@@ -0,0 +1,146 @@
+package gitlet;
+
+import java.util.Date;
+
+/**
+ * The metadata of a commit without its file map: what log and other
+ * history walks need. Loaded from the metadata index when the
+ * repository has one, otherwise from the (cached) commit object.
+ *
+ * @author Tony Hsu
+ */
+class CommitInfo {
+
+    /**
+     * length of an abbreviated commit ID.
+     */
+    static final int SHORT_ID = 7;
+
+    /**
+     * ID of the commit.
+     */
+    private String id;
+    /**
+     * first parent, or null.
+     */
+    private String parent;
+    /**
+     * second parent, or null.
+     */
+    private String mergeParent;
+    /**
+     * commit time.
+     */
+    private Date time;
+    /**
+     * commit message.
+     */
+    private String message;
+
+    /**
+     * CommitInfo constructor.
+     *
+     * @param iD      String
+     * @param par     String
+     * @param secondP String
+     * @param when    Date
+     * @param mess    String
+     */
+    CommitInfo(String iD, String par, String secondP, Date when,
+               String mess) {
+        id = iD;
+        parent = par;
+        mergeParent = secondP;
+        time = when;
+        message = mess;
+    }
+
+    /**
+     * Return the metadata of commit ID, or null if there is none.
+     *
+     * @param id String
+     * @return CommitInfo
+     */
+    static CommitInfo load(String id) {
+        if (id == null) {
+            return null;
+        }
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            String[] fields = meta.info(id);
+            if (fields != null) {
+                return new CommitInfo(id, fields[0], fields[1],
+                        new Date(Long.parseLong(fields[2])), fields[3]);
+            }
+        }
+        Commit cur = Git.deserializeCommit(id);
+        if (cur == null) {
+            return null;
+        }
+        return new CommitInfo(id, cur.getParent(), cur.getMergeParent(),
+                cur.getTime(), cur.getMessage());
+    }
+
+    /**
+     * Get the ID.
+     *
+     * @return String
+     */
+    String getID() {
+        return id;
+    }
+
+    /**
+     * Get the first parent.
+     *
+     * @return String
+     */
+    String getParent() {
+        return parent;
+    }
+
+    /**
+     * Get the second parent.
+     *
+     * @return String
+     */
+    String getMergeParent() {
+        return mergeParent;
+    }
+
+    /**
+     * Get the time.
+     *
+     * @return Date
+     */
+    Date getTime() {
+        return time;
+    }
+
+    /**
+     * Get the message.
+     *
+     * @return String
+     */
+    String getMessage() {
+        return message;
+    }
+
+    /**
+     * Return the one-line log entry: abbreviated ID and the first line
+     * of the message.
+     *
+     * @return String
+     */
+    String oneline() {
+        int end = message.indexOf('\n');
+        String first = end < 0 ? message : message.substring(0, end);
+        return id.substring(0, SHORT_ID) + " " + first;
+    }
+
+    @Override
+    public String toString() {
+        return Commit.format(id, parent, mergeParent, time, message);
+    }
+
+}
@@ -0,0 +1,202 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What a running watcher has seen change in the working tree, read by
+ * the other commands. A Watcher appends one line per change to the
+ * dirty log: the time it saw the change, its kind and the path that
+ * changed. The kind is + for an entry created, - for one deleted, ~
+ * for a file's contents modified, and ! with no path when events were
+ * lost and everything must be rescanned. Its token file holds the time
+ * it finished watching the whole tree.
+ *
+ * Before trusting the log a command proves the watcher is alive and
+ * caught up: it creates a cookie file in .gitlet and waits for the
+ * watcher to log it. If that does not happen in time the token is
+ * removed as stale and everything is rescanned as if no watcher ran.
+ *
+ * @author Tony Hsu
+ */
+class DirtyTracker {
+
+    /**
+     * dirty log, relative to a working directory.
+     */
+    static final String LOG = ".gitlet/dirty";
+    /**
+     * token file of a running watcher.
+     */
+    static final String TOKEN = ".gitlet/watch";
+    /**
+     * kind of a created entry.
+     */
+    static final char CREATED = '+';
+    /**
+     * kind of a deleted entry.
+     */
+    static final char DELETED = '-';
+    /**
+     * kind of a modified file.
+     */
+    static final char MODIFIED = '~';
+    /**
+     * kind of a loss of events.
+     */
+    static final char LOST = '!';
+    /**
+     * prefix of cookie file names.
+     */
+    static final String COOKIE = "cookie-";
+    /**
+     * milliseconds to wait for the watcher to log a cookie.
+     */
+    private static final long SYNC_TIMEOUT = 1000;
+    /**
+     * milliseconds between reads of the log while waiting.
+     */
+    private static final long POLL = 2;
+
+    /**
+     * whether the watcher has been looked for.
+     */
+    private static boolean checked;
+    /**
+     * time the running watcher started watching, or -1 if none.
+     */
+    private static long started = -1;
+    /**
+     * time of the last loss of events, or -1.
+     */
+    private static long overflow = -1;
+    /**
+     * time of the last change of each path, and of the entries of
+     * each directory.
+     */
+    private static Map<String, Long> changed = new HashMap<>();
+
+    /**
+     * Return whether directory DIR of the working tree is known to
+     * have kept the same entries since time MILLIS.
+     *
+     * @param dir    String
+     * @param millis long
+     * @return boolean
+     */
+    static synchronized boolean unchangedSince(String dir, long millis) {
+        if (!live() || started >= millis || overflow >= millis) {
+            return false;
+        }
+        Long last = changed.get(dir);
+        return last == null || last < millis;
+    }
+
+    /**
+     * Return whether a watcher is running.
+     *
+     * @return boolean
+     */
+    static synchronized boolean watching() {
+        return live();
+    }
+
+    /**
+     * Forget what was read, as when changing repositories.
+     */
+    static synchronized void reset() {
+        checked = false;
+        started = -1;
+        overflow = -1;
+        changed.clear();
+    }
+
+    /**
+     * Return whether a watcher is running and has logged every change
+     * made before this call, reading its log if so.
+     *
+     * @return boolean
+     */
+    private static boolean live() {
+        if (checked) {
+            return started >= 0;
+        }
+        checked = true;
+        File token = new File(TOKEN);
+        if (!token.isFile()) {
+            return false;
+        }
+        String cookie = COOKIE + Long.toHexString(System.nanoTime());
+        File cookieFile = new File(".gitlet", cookie);
+        try (RandomAccessFile log = new RandomAccessFile(LOG, "r")) {
+            cookieFile.createNewFile();
+            StringBuilder text = new StringBuilder();
+            long deadline = System.currentTimeMillis() + SYNC_TIMEOUT;
+            while (!synced(text, cookie)) {
+                if (System.currentTimeMillis() > deadline) {
+                    token.delete();
+                    return false;
+                }
+                Thread.sleep(POLL);
+                byte[] more = new byte[(int) (log.length()
+                        - log.getFilePointer())];
+                log.readFully(more);
+                text.append(new String(more, StandardCharsets.UTF_8));
+            }
+            started = Long.parseLong(
+                    Utils.readContentsAsString(token).trim());
+            parse(text.toString());
+            return true;
+        } catch (IOException | InterruptedException
+                 | NumberFormatException e) {
+            started = -1;
+            return false;
+        } finally {
+            cookieFile.delete();
+        }
+    }
+
+    /**
+     * Return whether log TEXT has logged cookie file COOKIE.
+     *
+     * @param text   CharSequence
+     * @param cookie String
+     * @return boolean
+     */
+    private static boolean synced(CharSequence text, String cookie) {
+        return text.toString().contains("\t" + CREATED + "\t.gitlet/"
+                + cookie + "\n");
+    }
+
+    /**
+     * Record the changes logged in TEXT.
+     *
+     * @param text String
+     */
+    private static void parse(String text) {
+        for (String line : text.split("\n")) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length < 3 || fields[1].length() != 1) {
+                continue;
+            }
+            long time = Long.parseLong(fields[0]);
+            char kind = fields[1].charAt(0);
+            String path = fields[2];
+            if (kind == LOST) {
+                overflow = Math.max(overflow, time);
+                continue;
+            }
+            changed.merge(path, time, Math::max);
+            if (kind != MODIFIED) {
+                int slash = path.lastIndexOf('/');
+                changed.merge(slash < 0 ? WorkTree.ROOT
+                        : path.substring(0, slash), time, Math::max);
+            }
+        }
+    }
+
+}
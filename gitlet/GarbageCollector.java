@@ -0,0 +1,348 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reachability-based garbage collection of the object stores. Marks
+ * every commit reachable through either parent from the given roots,
+ * one generation at a time with the commits of a generation read in
+ * parallel, and every blob those commits refer to. Then sweeps the
+ * stores one fan-out prefix at a time, deleting unmarked objects
+ * older than a grace period. Commits young enough to survive the sweep
+ * are marked as roots too, so that nothing a surviving commit refers
+ * to is ever deleted. Chunks of large files count as reachable when
+ * their manifest blob is.
+ *
+ * Reachable commits are remembered exactly. Reachable blobs are
+ * remembered by the first 64 bits of their ID in a primitive hash
+ * set, which keeps the mark phase at a few bytes per blob; a
+ * collision can only keep a garbage blob alive, never delete a live
+ * one.
+ *
+ * @author Tony Hsu
+ */
+class GarbageCollector {
+
+    /**
+     * number of hex digits folded into a blob mark.
+     */
+    private static final int MARK_DIGITS = 16;
+
+    /**
+     * reachable commits.
+     */
+    private Set<String> commits = ConcurrentHashMap.newKeySet();
+    /**
+     * marks of reachable blobs.
+     */
+    private LongSet blobs = new LongSet();
+    /**
+     * objects written after this time are never swept.
+     */
+    private long cutoff;
+    /**
+     * number of commits removed.
+     */
+    private int removedCommits;
+    /**
+     * number of blobs removed.
+     */
+    private int removedBlobs;
+    /**
+     * bytes reclaimed.
+     */
+    private long reclaimed;
+    /**
+     * chunked blobs listed by the metadata index.
+     */
+    private Set<String> manifests = new HashSet<>();
+    /**
+     * IDs of the commits removed.
+     */
+    private List<String> removedCommitIDs = new ArrayList<>();
+
+    /**
+     * GarbageCollector constructor. Objects written less than GRACE
+     * milliseconds ago survive.
+     *
+     * @param grace long
+     */
+    GarbageCollector(long grace) {
+        cutoff = System.currentTimeMillis() - grace;
+    }
+
+    /**
+     * Mark the commits in ROOTS and everything reachable from them.
+     *
+     * @param roots Collection
+     */
+    void markCommits(Collection<String> roots) {
+        List<String> frontier = new ArrayList<>();
+        for (String id : roots) {
+            if (id != null && commits.add(id)) {
+                frontier.add(id);
+            }
+        }
+        while (!frontier.isEmpty()) {
+            List<String> next = new ArrayList<>();
+            frontier.parallelStream().forEach(id -> {
+                Commit cur = Git.deserializeCommit(id);
+                if (cur == null) {
+                    return;
+                }
+                for (String blob : cur.getBlobs().values()) {
+                    blobs.add(mark(blob));
+                }
+                for (String parent : Shallow.parents(cur)) {
+                    if (commits.add(parent)) {
+                        synchronized (next) {
+                            next.add(parent);
+                        }
+                    }
+                }
+            });
+            frontier = next;
+        }
+    }
+
+    /**
+     * Mark every commit the sweep would keep for being within the
+     * grace period, and everything reachable from it.
+     */
+    void markRecent() {
+        List<String> recent = new ArrayList<>();
+        for (int i = 0; i < 256; i += 1) {
+            String prefix = String.format("%02x", i);
+            for (String id : Storage.commits().idsWithPrefix(prefix)) {
+                if (id.length() == Utils.UID_LENGTH && !commits.contains(id)
+                        && Storage.commits().lastModified(id) > cutoff) {
+                    recent.add(id);
+                }
+            }
+        }
+        markCommits(recent);
+    }
+
+    /**
+     * Mark the blobs in IDS.
+     *
+     * @param ids Collection
+     */
+    void markBlobs(Collection<String> ids) {
+        for (String id : ids) {
+            blobs.add(mark(id));
+        }
+    }
+
+    /**
+     * Mark the chunks of every reachable chunked blob. The metadata
+     * index lists the chunked blobs; without one, every reachable blob
+     * is checked.
+     */
+    void markChunks() {
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            manifests.addAll(meta.manifests());
+            for (String id : manifests) {
+                markChunksOf(id);
+            }
+            return;
+        }
+        for (int i = 0; i < 256; i += 1) {
+            String prefix = String.format("%02x", i);
+            for (String id : Storage.blobs().idsWithPrefix(prefix)) {
+                markChunksOf(id);
+            }
+        }
+    }
+
+    /**
+     * Mark the chunks of blob ID if it is reachable and chunked.
+     *
+     * @param id String
+     */
+    private void markChunksOf(String id) {
+        if (id.length() != Utils.UID_LENGTH || !blobs.contains(mark(id))) {
+            return;
+        }
+        List<String> chunks = Blobs.chunks(id);
+        if (chunks != null) {
+            markBlobs(chunks);
+        }
+    }
+
+    /**
+     * Delete every unmarked object old enough from the stores, one
+     * fan-out prefix at a time.
+     */
+    void sweep() {
+        MetaIndex meta = Storage.meta();
+        for (int i = 0; i < 256; i += 1) {
+            String prefix = String.format("%02x", i);
+            for (String id : Storage.commits().idsWithPrefix(prefix)) {
+                if (id.length() != Utils.UID_LENGTH) {
+                    continue;
+                }
+                if (!commits.contains(id) && remove(Storage.commits(), id)) {
+                    removedCommits += 1;
+                    removedCommitIDs.add(id);
+                    if (meta != null) {
+                        meta.removeCommit(id);
+                    }
+                }
+            }
+            for (String id : Storage.blobs().idsWithPrefix(prefix)) {
+                if (id.length() != Utils.UID_LENGTH) {
+                    continue;
+                }
+                if (!blobs.contains(mark(id))
+                        && remove(Storage.blobs(), id)) {
+                    removedBlobs += 1;
+                    if (manifests.contains(id)) {
+                        meta.removeManifest(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the IDs of the commits removed by sweep.
+     *
+     * @return List
+     */
+    List<String> getRemovedCommits() {
+        return removedCommitIDs;
+    }
+
+    /**
+     * Return a summary of what sweep removed.
+     *
+     * @return String
+     */
+    String report() {
+        return "Removed " + removedCommits + " commits and " + removedBlobs
+                + " blobs, reclaimed " + reclaimed + " bytes.";
+    }
+
+    /**
+     * Delete object ID from STORE if it is older than the grace
+     * period, returning whether it was deleted.
+     *
+     * @param store ObjectStore
+     * @param id    String
+     * @return boolean
+     */
+    private boolean remove(ObjectStore store, String id) {
+        if (store.lastModified(id) > cutoff) {
+            return false;
+        }
+        long size = store.size(id);
+        if (store.delete(id)) {
+            reclaimed += size;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the mark of blob ID.
+     *
+     * @param id String
+     * @return long
+     */
+    private static long mark(String id) {
+        return Long.parseUnsignedLong(id.substring(0, MARK_DIGITS), 16);
+    }
+
+    /**
+     * A thread-safe open-addressing hash set of longs.
+     */
+    private static class LongSet {
+
+        /**
+         * slot value meaning empty; 0 itself is kept in zeroPresent.
+         */
+        private static final long EMPTY = 0;
+
+        /**
+         * slots.
+         */
+        private long[] slots = new long[1024];
+        /**
+         * number of non-zero elements.
+         */
+        private int size;
+        /**
+         * whether 0 is in the set.
+         */
+        private boolean zeroPresent;
+
+        /**
+         * Add X.
+         *
+         * @param x long
+         */
+        synchronized void add(long x) {
+            if (x == EMPTY) {
+                zeroPresent = true;
+                return;
+            }
+            if (2 * (size + 1) > slots.length) {
+                long[] old = slots;
+                slots = new long[old.length * 2];
+                size = 0;
+                for (long y : old) {
+                    if (y != EMPTY) {
+                        insert(y);
+                    }
+                }
+            }
+            insert(x);
+        }
+
+        /**
+         * Return whether X is in the set.
+         *
+         * @param x long
+         * @return boolean
+         */
+        synchronized boolean contains(long x) {
+            if (x == EMPTY) {
+                return zeroPresent;
+            }
+            int mask = slots.length - 1;
+            for (int i = (int) (x ^ (x >>> 32)) & mask; slots[i] != EMPTY;
+                 i = (i + 1) & mask) {
+                if (slots[i] == x) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Put non-zero X in a free slot unless present.
+         *
+         * @param x long
+         */
+        private void insert(long x) {
+            int mask = slots.length - 1;
+            int i = (int) (x ^ (x >>> 32)) & mask;
+            while (slots[i] != EMPTY) {
+                if (slots[i] == x) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = x;
+            size += 1;
+        }
+    }
+
+}
@@ -1,26 +1,24 @@
 package gitlet;
 
-import java.io.BufferedReader;
 import java.io.Serializable;
 import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
 import java.util.TreeMap;
 import java.util.ArrayList;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-
-import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * Git class that serves as the driver class for
@@ -31,13 +29,37 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 public class Git implements Serializable {
 
     /**
-     * path to blobs.
+     * Serialization version, unchanged since the first release.
+     */
+    private static final long serialVersionUID = -840213815725643218L;
+    /**
+     * format of the date part of log options.
+     */
+    private static final String DAY_FORMAT = "yyyy-MM-dd";
+    /**
+     * default number of days unreachable objects are kept.
+     */
+    private static final int GC_GRACE_DAYS = 14;
+    /**
+     * default number of days reflog entries are kept.
      */
-    private static String blobsDirectory = ".gitlet/blobs/";
+    private static final int REFLOG_DAYS = 90;
     /**
-     * path to commits.
+     * most recently read commits.
      */
-    private static String commitsPath = ".gitlet/commits/";
+    private static final int CACHED_COMMITS = 64;
+    /**
+     * cache of recently read commits by ID; commits never change.
+     */
+    private static Map<String, Commit> commitCache =
+            Collections.synchronizedMap(
+                    new LinkedHashMap<String, Commit>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(
+                                Map.Entry<String, Commit> eldest) {
+                            return size() > CACHED_COMMITS;
+                        }
+                    });
     /**
      * branches.
      */
@@ -50,6 +72,21 @@ public class Git implements Serializable {
      * message and corresponding IDs.
      */
     private HashMap<String, HashSet<String>> messageToID;
+    /**
+     * remotes by name, as paths of their .gitlet directories; null
+     * until the first remote is added.
+     */
+    private TreeMap<String, String> remotes;
+    /**
+     * stash entries, newest first; null until the first stash.
+     */
+    private ArrayList<String> stashes;
+    /**
+     * every commit made by stash and still stored, which the global
+     * log and the metadata index leave out; null until the first
+     * stash.
+     */
+    private HashSet<String> stashCommits;
 
     /**
      * Git constructor.
@@ -69,12 +106,71 @@ public class Git implements Serializable {
         Branch initialBranch = new Branch("master");
         newGit.curBranch = initialBranch;
         initialBranch.setStage(new Stages(curCommit));
-        initialBranch.setHead(curCommit);
+        initialBranch.setHead(curCommit, Reflog.INIT);
         initialBranch.writeCommitFile(curCommit);
         newGit.branches.put("master", initialBranch);
         return newGit;
     }
 
+    /**
+     * Make a repository in the current directory from the one in
+     * directory SOURCE, copying only the commits at most DEPTH
+     * generations from a branch head, and check out the files of its
+     * current branch. Staged changes, stashes and remotes of SOURCE
+     * are not copied: stash commits are not reachable from a head, and
+     * remote paths may be relative to SOURCE. Returns null if nothing
+     * was made.
+     *
+     * @param source String
+     * @param depth  int
+     * @return Git
+     */
+    public static Git initFrom(String source, int depth) {
+        File control = new File(source, ".gitlet/mainControl.file");
+        if (!control.isFile()) {
+            System.out.println("No Gitlet repository at that path.");
+            return null;
+        }
+        Git result = Utils.deserialize(Utils.readContents(control),
+                Git.class);
+        result.stashes = null;
+        result.stashCommits = null;
+        result.remotes = null;
+        byte[] headData = new LooseObjectStore(new File(source,
+                Storage.COMMITS_DIR).getPath() + "/")
+                .get(result.curBranch.getHeadID());
+        Commit head = Utils.deserialize(headData, Commit.class);
+        for (String name : head.getBlobs().keySet()) {
+            if (new File(name).exists()) {
+                System.out.println("There is an untracked file in the way;"
+                        + " delete it or add it first.");
+                return null;
+            }
+        }
+        new File(".gitlet").mkdirs();
+        Storage.enableMeta();
+        ArrayList<String> heads = new ArrayList<>();
+        for (Branch branch : result.branches.values()) {
+            heads.add(branch.getHeadID());
+        }
+        int copied = Shallow.copy(source, heads, depth);
+        for (Branch branch : result.branches.values()) {
+            branch.setStage(new Stages(branch.getHead()));
+            Reflog.queue(Reflog.DIR, branch.getName(), null,
+                    branch.getHeadID(), Reflog.CLONE);
+        }
+        result.initMes2ID();
+        for (Map.Entry<String, String> e : head.getBlobs().entrySet()) {
+            try {
+                Blobs.restore(e.getValue(), new File(e.getKey()));
+            } catch (IOException ex) {
+                System.out.println("Could not restore file.");
+            }
+        }
+        System.out.println("Copied " + copied + " commits.");
+        return result;
+    }
+
     /**
      * deserialize a commit.
      *
@@ -85,18 +181,17 @@ public class Git implements Serializable {
         if (name == null) {
             return null;
         }
-        Commit result = null;
-        File gitFile = new File(commitsPath + name);
-        try {
-            ObjectInputStream inp =
-                    new ObjectInputStream(new FileInputStream(gitFile));
-            result = (Commit) inp.readObject();
-            inp.close();
-        } catch (IOException e) {
+        Commit result = commitCache.get(name);
+        if (result != null) {
+            return result;
+        }
+        byte[] data = Storage.commits().get(name);
+        if (data == null) {
             System.out.println("IOException");
-        } catch (ClassNotFoundException e) {
-            System.out.println("ClassNotFoundException");
+            return null;
         }
+        result = Utils.deserialize(data, Commit.class);
+        commitCache.put(name, result);
         return result;
     }
 
@@ -121,61 +216,67 @@ public class Git implements Serializable {
         }
         Branch givenBranch = branches.get(name);
         Commit givenCommit = givenBranch.getHead();
-        Commit splitPoint = splitPoint(givenBranch);
+        List<String> bases = MergeBase.current().bases(
+                curBranch.getHead().getSHA1ID(), givenCommit.getSHA1ID());
+        if (bases.isEmpty()) {
+            System.out.println("No common ancestor in the shallow history.");
+            return;
+        }
         Stages temp = new Stages(curBranch.getHead());
-        if (splitPoint.getSHA1ID().equals(givenCommit.getSHA1ID())) {
+        if (bases.contains(givenCommit.getSHA1ID())) {
             System.out.println("Given branch is an "
                     +
                     "ancestor of the current branch.");
             return;
         }
-        if (splitPoint.getSHA1ID().equals(curBranch.getHead().getSHA1ID())) {
+        if (bases.contains(curBranch.getHead().getSHA1ID())) {
             if (checkUntrackedOverwritten(givenCommit)) {
                 System.out.println("There is an untrac"
                         + "ked file in the way; delete it or add it first.");
             } else {
                 System.out.println("Current branch fast-forwarded.");
-                reset(givenCommit.getSHA1ID());
-                curBranch.setHead(givenCommit);
+                reset(givenCommit.getSHA1ID(), Reflog.MERGE);
                 temp = new Stages(givenCommit);
                 curBranch.setStage(temp);
             }
             return;
         }
-        HashSet<String> allFiles =
-                new HashSet<>(givenBranch.getHead().getBlobs().keySet());
-        allFiles.addAll(splitPoint.getBlobs().keySet());
-        allFiles.addAll(curBranch.getHead().getBlobs().keySet());
         temp.initMerge();
-        boolean mergeConflict = mergeFilesClassifier(splitPoint, givenCommit,
-                curBranch.getHead(), temp, allFiles);
-        if (checkUntrackedOverwrittenMerge
-                (temp.getMergeCheckOutFiles().keySet(),
-                        temp.getRemovingFiles())) {
+        boolean mergeConflict = MergeClassifier.classify(
+                MergeBase.current().baseTable(bases),
+                curBranch.getHead().getPathTable(),
+                givenCommit.getPathTable(), temp);
+        Set<String> overWriting =
+                new HashSet<>(temp.getMergeCheckOutFiles().keySet());
+        overWriting.addAll(temp.getMergeConflicts().keySet());
+        if (checkUntrackedOverwrittenMerge(overWriting,
+                temp.getRemovingFiles())) {
             System.out.println("There is an untracked file "
                     +
                     "in the way; delete it or add it first.");
             return;
         }
+        if (!mergeFilesRestore(temp)) {
+            return;
+        }
         if (mergeConflict) {
             System.out.println("Encountered a merge conflict.");
         }
         curBranch.setStage(temp);
-        mergeFilesRestore(temp);
         curBranch.commitMerge(givenCommit.getSHA1ID(), name);
         addNewMesID();
     }
 
     /**
-     * Restore merged files.
+     * Execute a planned merge: write the conflict blobs and restore
+     * merged files into the working directory. Return false, having
+     * written nothing, if a conflict cannot be resolved.
      *
      * @param cur Stages
+     * @return boolean
      */
-    public void mergeFilesRestore(Stages cur) {
-        TreeMap<String, String> newFiles = cur.getMergeCheckOutFiles();
-        for (String i : newFiles.keySet()) {
-            restoreFileName(i, newFiles.get(i), true);
-        }
+    public boolean mergeFilesRestore(Stages cur) {
+        return new MergeExecutor(Storage.blobs()).execute(cur);
     }
 
     /**
@@ -187,19 +288,7 @@ public class Git implements Serializable {
      */
     public boolean checkUntrackedOverwrittenMerge(
             Set<String> overWriting, Set<String> removing) {
-        List<String> allName = Utils.plainFilenamesIn(Paths.get(".").
-                toAbsolutePath().normalize().toString());
-        ArrayList<String> untrackedFiles = new ArrayList<>();
-        for (String i : allName) {
-            if (curBranch.getHead().contains(i)) {
-                continue;
-            }
-            if (curBranch.getCurStage().getStagedFiles().containsKey(i)) {
-                continue;
-            }
-            untrackedFiles.add(i);
-        }
-        for (String i : untrackedFiles) {
+        for (String i : untrackedFiles()) {
             if ((overWriting.contains(i)) || (removing.contains(i))) {
                 return true;
             }
@@ -208,172 +297,35 @@ public class Git implements Serializable {
     }
 
     /**
-     * To determine what to do with file at split point.
+     * Return the files of the working directory that are neither in
+     * the head commit nor staged.
      *
-     * @param name         String
-     * @param curID        String
-     * @param currentFiles Set
-     * @param givenFiles   Set
-     * @param givenID      String
-     * @param newStage     Stages
-     * @param splitPoint   Commit
-     * @return boolean
+     * @return List
      */
-    public boolean splitPointClassifier(Commit splitPoint,
-                                        Set<String> currentFiles,
-                                        Set<String> givenFiles,
-                                        String name, String curID,
-                                        String givenID, Stages newStage) {
-        boolean conflict = false;
-        String splitID = splitPoint.getBlobsID(name);
-        if ((currentFiles.contains(name)) && (givenFiles.contains(name))) {
-            if (splitID.equals(givenID)) {
-                if (splitID.equals(curID)) {
-                    newStage.getStagedFiles().put(name, givenID);
-                } else {
-                    newStage.getStagedFiles().put(name, curID);
-                }
-            } else {
-                if (splitID.equals(curID)) {
-                    newStage.getStagedFiles().put(name, givenID);
-                    newStage.getMergeCheckOutFiles().put(name, givenID);
-                } else {
-                    String merged = handleMergeConflict(curID, givenID);
-                    newStage.getStagedFiles().put(name, merged);
-                    newStage.getMergeCheckOutFiles().put(name, merged);
-                    conflict = true;
-                }
-            }
-        } else if (currentFiles.contains(name)) {
-            if (splitID.equals(curID)) {
-                newStage.getRemovingFiles().add(name);
-            } else {
-                String merged = handleMergeConflict(curID, givenID);
-                newStage.getStagedFiles().put(name, merged);
-                newStage.getMergeCheckOutFiles().put(name, merged);
-                conflict = true;
+    private List<String> untrackedFiles() {
+        Map<String, String> tracked = curBranch.getHead().getBlobs();
+        Map<String, String> staged = curBranch.getCurStage().getStagedFiles();
+        ArrayList<String> result = new ArrayList<>();
+        for (String i : WorkTree.files()) {
+            if (!tracked.containsKey(i) && !staged.containsKey(i)) {
+                result.add(i);
             }
-        } else if (givenFiles.contains(name)) {
-            if (!splitID.equals(givenID)) {
-                String merged = handleMergeConflict(curID, givenID);
-                newStage.getStagedFiles().put(name, merged);
-                newStage.getMergeCheckOutFiles().put(name, merged);
-                conflict = true;
-            }
-        }
-        return conflict;
-    }
-
-    /**
-     * Determine what to do with a file at merge.
-     *
-     * @param splitPoint Commit
-     * @param newStage   Stages
-     * @param allFiles   Set
-     * @param current    Commit
-     * @param given      Commit
-     * @return boolean
-     */
-    public boolean mergeFilesClassifier(Commit splitPoint,
-                                        Commit given, Commit current,
-                                        Stages newStage, Set<String> allFiles) {
-        Set<String> splitPointFiles = splitPoint.getBlobs().keySet();
-        Set<String> currentFiles = current.getBlobs().keySet();
-        Set<String> givenFiles = given.getBlobs().keySet();
-        boolean conflict = false;
-        for (String name : allFiles) {
-            String curID = current.getBlobsID(name);
-            String givenID = given.getBlobsID(name);
-            if (splitPointFiles.contains(name)) {
-                boolean helper = splitPointClassifier(splitPoint,
-                        currentFiles, givenFiles,
-                        name, curID, givenID, newStage);
-                conflict = helper;
-
-            } else {
-                if ((currentFiles.contains(name))
-                        &&
-                        (givenFiles.contains(name))) {
-                    if (curID.equals(givenID)) {
-                        newStage.getStagedFiles().put(name, givenID);
-                    } else {
-                        String newFile = handleMergeConflict(curID, givenID);
-                        newStage.getStagedFiles().put(name, newFile);
-                        newStage.getMergeCheckOutFiles().put(name, newFile);
-                        conflict = true;
-                    }
-                } else if (currentFiles.contains(name)) {
-                    newStage.getStagedFiles().
-                            put(name, current.getBlobsID(name));
-                } else {
-                    newStage.getStagedFiles().put(name, givenID);
-                    newStage.getMergeCheckOutFiles().put(name, givenID);
-                }
-            }
-        }
-        return conflict;
-    }
-
-    /**
-     * Make a new file when there's a conflict.
-     *
-     * @param file1 String
-     * @param file2 String
-     * @return String
-     */
-    public String handleMergeConflict(String file1, String file2) {
-        String firstCont;
-        String secondCont;
-        if (file1 == null) {
-            firstCont = "";
-        } else {
-            String firstDes = blobsDirectory + file1;
-            File firstFile = new File(firstDes);
-            firstCont = Utils.readContentsAsString(firstFile);
-        }
-        if (file2 == null) {
-            secondCont = "";
-        } else {
-            String secondDes = blobsDirectory + file2;
-            File secondFile = new File(secondDes);
-            secondCont = Utils.readContentsAsString(secondFile);
         }
-        String sha1 = Utils.sha1(firstCont, secondCont);
-        String head = "<<<<<<< HEAD\n";
-        String separator = "=======\n";
-        String tail = ">>>>>>>\n";
-        String finalDes = blobsDirectory + sha1;
-        File finalFile = new File(finalDes);
-        String finalString = head + firstCont
-                +
-                separator + secondCont + tail;
-        Utils.writeContents(finalFile, finalString);
-        return sha1;
+        return result;
     }
 
     /**
-     * Return the split point between two branches.
+     * Return the best split point between the current branch and
+     * GIVEN, the merge base of highest generation, or null if there is
+     * none within a shallow history.
      *
      * @param given Branch
      * @return Commit
      */
     public Commit splitPoint(Branch given) {
-        ArrayList<String> curHistory = new ArrayList<>();
-        Commit curCommit = curBranch.getHead();
-        while (curCommit != null) {
-            curHistory.add(curCommit.getSHA1ID());
-            curCommit = Git.deserializeCommit(curCommit.getParent());
-        }
-        curCommit = given.getHead();
-        int result;
-        while (true) {
-            if (curHistory.contains(curCommit.getSHA1ID())) {
-                result = curHistory.indexOf(curCommit.getSHA1ID());
-                break;
-            }
-            curCommit = Git.deserializeCommit(curCommit.getParent());
-        }
-        return Git.deserializeCommit(curHistory.get(result));
+        List<String> bases = MergeBase.current().bases(
+                curBranch.getHead().getSHA1ID(), given.getHead().getSHA1ID());
+        return bases.isEmpty() ? null : deserializeCommit(bases.get(0));
     }
 
     /**
@@ -397,14 +349,15 @@ public class Git implements Serializable {
                 restoreBranchName(branchName);
             }
         } else if (input.length == 2) {
-            if (curBranch.getHead().contains(input[1])) {
-                restoreFileName(input[1], null, false);
+            String fileName = WorkTree.normalize(input[1]);
+            if (curBranch.getHead().contains(fileName)) {
+                restoreFileName(fileName, null, false);
             } else {
                 System.out.println("File does not exist in that commit.");
             }
         } else if (input.length == 3) {
             String commitID = input[0];
-            String fileName = input[2];
+            String fileName = WorkTree.normalize(input[2]);
             commitID = commitIDExists(commitID);
             if (commitID == null) {
                 System.out.println("No commit with that id exists.");
@@ -420,27 +373,37 @@ public class Git implements Serializable {
     }
 
     /**
-     * Checkout whether a commit ID exists in Git.
+     * Checkout whether a commit ID exists in Git. NAME may also be a
+     * tag, which names the commit it is a tag of.
      *
      * @param name String
      * @return String
      */
     public String commitIDExists(String name) {
+        String tagged = Refs.peel(name);
+        if (tagged != null) {
+            return tagged;
+        }
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            if (name.length() == Utils.UID_LENGTH) {
+                return meta.hasCommit(name) ? name : null;
+            }
+            return meta.resolve(name);
+        }
         if (name.length() == Utils.UID_LENGTH) {
-            File commitFile = new File(commitsPath + name);
-            if (commitFile.exists()) {
+            if (Storage.commits().exists(name)) {
                 return name;
             } else {
                 return null;
             }
         } else {
-            List<String> allCommits = Utils.plainFilenamesIn(commitsPath);
-            for (String i : allCommits) {
-                if (i.contains(name)) {
-                    return i;
-                }
+            List<String> allCommits =
+                    Storage.commits().idsWithPrefix(name);
+            if (allCommits.isEmpty()) {
+                return null;
             }
-            return null;
+            return allCommits.get(0);
         }
     }
 
@@ -450,6 +413,17 @@ public class Git implements Serializable {
      * @param name String
      */
     public void reset(String name) {
+        reset(name, Reflog.RESET);
+    }
+
+    /**
+     * Check out commit NAME and make it the head of the current
+     * branch, logging the move as operation OP.
+     *
+     * @param name String
+     * @param op   char
+     */
+    private void reset(String name, char op) {
         name = commitIDExists(name);
         if (name == null) {
             System.out.println("No commit with that id exists.");
@@ -461,17 +435,10 @@ public class Git implements Serializable {
                     + "delete it or add it first.");
             return;
         }
-        Set<String> allNamesNew = cur.getBlobs().keySet();
-        for (String i : allNamesNew) {
-            restoreCommitID(cur, i);
-        }
-        Set<String> allNamesOld = curBranch.getHead().getBlobs().keySet();
-        for (String j : allNamesOld) {
-            if (!allNamesNew.contains(j)) {
-                Utils.restrictedDelete(j);
-            }
+        if (!checkoutAll(curBranch.getHead(), cur)) {
+            return;
         }
-        curBranch.setHead(cur);
+        curBranch.setHead(cur, op);
         curBranch.setStage(new Stages(cur));
     }
 
@@ -482,20 +449,8 @@ public class Git implements Serializable {
      * @return boolean
      */
     public boolean checkUntrackedOverwritten(Commit newCommit) {
-        List<String> allName = Utils.plainFilenamesIn(Paths.get(".").
-                toAbsolutePath().normalize().toString());
-        ArrayList<String> untrackedFiles = new ArrayList<>();
-        for (String i : allName) {
-            if (curBranch.getHead().contains(i)) {
-                continue;
-            }
-            if (curBranch.getCurStage().getStagedFiles().containsKey(i)) {
-                continue;
-            }
-            untrackedFiles.add(i);
-        }
         Set<String> comingFiles = newCommit.getBlobs().keySet();
-        for (String i : untrackedFiles) {
+        for (String i : untrackedFiles()) {
             if (comingFiles.contains(i)) {
                 return true;
             }
@@ -510,12 +465,9 @@ public class Git implements Serializable {
      * @param cur  Commit
      */
     public void restoreCommitID(Commit cur, String name) {
-        String old = blobsDirectory + cur.getBlobs().get(name);
         File curFile = new File(name);
-        File oldFile = new File(old);
         try {
-            Files.copy(oldFile.toPath(), curFile.toPath(),
-                    COPY_ATTRIBUTES, REPLACE_EXISTING);
+            Blobs.restore(cur.getBlobs().get(name), curFile);
         } catch (IOException e) {
             System.out.println("Could not restore file.");
         }
@@ -531,16 +483,14 @@ public class Git implements Serializable {
     public void restoreFileName(String name, String iD, Boolean merge) {
         String old;
         if (merge) {
-            old = blobsDirectory + iD;
+            old = iD;
         } else {
             Commit cur = curBranch.getHead();
-            old = blobsDirectory + cur.getBlobs().get(name);
+            old = cur.getBlobs().get(name);
         }
         File curFile = new File(name);
-        File oldFile = new File(old);
         try {
-            Files.copy(oldFile.toPath(), curFile.toPath(),
-                    COPY_ATTRIBUTES, REPLACE_EXISTING);
+            Blobs.restore(old, curFile);
         } catch (IOException e) {
             System.out.println("Could not restore file.");
         }
@@ -553,26 +503,8 @@ public class Git implements Serializable {
      */
     public void restoreBranchName(String name) {
         Branch setBranch = branches.get(name);
-        Commit newCommit = setBranch.getHead();
-        HashMap<String, String> newCommitBlobs = newCommit.getBlobs();
-        for (String i : newCommitBlobs.keySet()) {
-            String old = blobsDirectory
-                    + newCommitBlobs.get(i);
-            File curFile = new File(i);
-            File oldFile = new File(old);
-            try {
-                Files.copy(oldFile.toPath(),
-                        curFile.toPath(), COPY_ATTRIBUTES, REPLACE_EXISTING);
-            } catch (IOException e) {
-                System.out.println("Could not restore file.");
-            }
-        }
-        Commit oldCommit = curBranch.getHead();
-        Set<String> newCommitBlobsNames = newCommitBlobs.keySet();
-        for (String i : oldCommit.getBlobs().keySet()) {
-            if (!newCommitBlobsNames.contains(i)) {
-                Utils.restrictedDelete(i);
-            }
+        if (!checkoutAll(curBranch.getHead(), setBranch.getHead())) {
+            return;
         }
         curBranch.setStage(null);
         curBranch = setBranch;
@@ -580,12 +512,47 @@ public class Git implements Serializable {
     }
 
     /**
-     * Stage a new file.
+     * Make the working directory, which holds the files of FROM, hold
+     * every file of TO. The files TO lacks are deleted first, so that
+     * a directory of FROM may be a file of TO. Returns whether every
+     * file was written, after saying so if not.
+     *
+     * @param from Commit
+     * @param to   Commit
+     * @return boolean
+     */
+    private boolean checkoutAll(Commit from, Commit to) {
+        for (String name : from.getBlobs().keySet()) {
+            if (!to.contains(name)) {
+                WorkTree.delete(name);
+            }
+        }
+        try {
+            for (Map.Entry<String, String> e : to.getBlobs().entrySet()) {
+                Blobs.restore(e.getValue(), new File(e.getKey()));
+            }
+        } catch (IOException e) {
+            System.out.println("Could not restore file.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stage a new file, or every file of the working tree under a
+     * directory.
      *
      * @param adding String
      */
     public void add(String adding) {
-        curBranch.addFile(adding);
+        String name = WorkTree.normalize(adding);
+        if (name == null) {
+            System.out.println("File does not exist.");
+        } else if (new File(name).isDirectory()) {
+            curBranch.addFiles(WorkTree.files(name));
+        } else {
+            curBranch.addFile(name);
+        }
     }
 
     /**
@@ -599,7 +566,7 @@ public class Git implements Serializable {
             return;
         }
         Branch newBranch = new Branch(name);
-        newBranch.setHead(curBranch.getHead());
+        newBranch.setHead(curBranch.getHead(), Reflog.BRANCH);
         branches.put(name, newBranch);
     }
 
@@ -615,6 +582,7 @@ public class Git implements Serializable {
             System.out.println("Cannot remove the current branch.");
         } else {
             branches.remove(name);
+            Reflog.delete(name);
         }
     }
 
@@ -632,7 +600,79 @@ public class Git implements Serializable {
      * Print log from current branch.
      */
     public void printLog() {
-        curBranch.printLog();
+        printLog(new String[0]);
+    }
+
+    /**
+     * Print log from current branch, limited by the options in ARGS:
+     * -n N (or --max-count=N), --since DATE, --until DATE, --oneline
+     * and a final -- PATH, which keeps only commits that changed PATH.
+     * Dates are yyyy-MM-dd or yyyy-MM-dd HH:mm:ss.
+     *
+     * @param args String[]
+     */
+    public void printLog(String[] args) {
+        int max = Integer.MAX_VALUE;
+        Date since = null;
+        Date until = null;
+        boolean oneline = false;
+        String path = null;
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                String arg = args[i];
+                if (arg.equals("--") && i == args.length - 2) {
+                    i += 1;
+                    path = args[i];
+                } else if (arg.equals("--oneline")) {
+                    oneline = true;
+                } else if (arg.equals("-n")) {
+                    i += 1;
+                    max = Integer.parseInt(args[i]);
+                } else if (arg.startsWith("--max-count=")) {
+                    max = Integer.parseInt(arg.substring(12));
+                } else if (arg.equals("--since") || arg.equals("--until")) {
+                    i += 1;
+                    if (arg.equals("--since")) {
+                        since = parseDate(args[i], false);
+                    } else {
+                        until = parseDate(args[i], true);
+                    }
+                } else if (arg.startsWith("--since=")) {
+                    since = parseDate(arg.substring(8), false);
+                } else if (arg.startsWith("--until=")) {
+                    until = parseDate(arg.substring(8), true);
+                } else {
+                    System.out.println("Incorrect operands.");
+                    return;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException
+                | ParseException e) {
+            System.out.println("Incorrect operands.");
+            return;
+        }
+        curBranch.printLog(max, since, until, oneline, path);
+    }
+
+    /**
+     * Parse a log date. A date without a time means the start of that
+     * day, or its end if ENDOFDAY.
+     *
+     * @param date     String
+     * @param endOfDay boolean
+     * @return Date
+     * @throws ParseException if DATE is malformed
+     */
+    private static Date parseDate(String date, boolean endOfDay)
+            throws ParseException {
+        if (date.length() > DAY_FORMAT.length()) {
+            return new SimpleDateFormat(DAY_FORMAT + " HH:mm:ss").parse(date);
+        }
+        Date day = new SimpleDateFormat(DAY_FORMAT).parse(date);
+        if (endOfDay) {
+            return new Date(day.getTime() + TimeUnit.DAYS.toMillis(1) - 1);
+        }
+        return day;
     }
 
     /**
@@ -670,7 +710,12 @@ public class Git implements Serializable {
      * @param deleting String
      */
     public void remove(String deleting) {
-        curBranch.removeFile(deleting);
+        String name = WorkTree.normalize(deleting);
+        if (name == null) {
+            System.out.println("No reason to remove the file.");
+        } else {
+            curBranch.removeFile(name);
+        }
     }
 
     /**
@@ -679,6 +724,17 @@ public class Git implements Serializable {
      * @param message String
      */
     public void find(String message) {
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            List<String> found = meta.find(message);
+            if (found.isEmpty()) {
+                System.out.println("Found no commit with that message.");
+            }
+            for (String id : found) {
+                System.out.println(id);
+            }
+            return;
+        }
         if (!messageToID.containsKey(message)) {
             System.out.println("Found no commit with that message.");
             return;
@@ -699,7 +755,18 @@ public class Git implements Serializable {
      * add message to ID.
      */
     public void addNewMesID() {
-        Commit cur = curBranch.getCurStage().getNewestCommit();
+        addMesID(curBranch.getCurStage().getNewestCommit());
+    }
+
+    /**
+     * add the message of commit CUR to ID.
+     *
+     * @param cur Commit
+     */
+    private void addMesID(Commit cur) {
+        if (Storage.meta() != null) {
+            return;
+        }
         String message = cur.getMessage();
         String iD = cur.getSHA1ID();
         if (messageToID.containsKey(message)) {
@@ -712,35 +779,728 @@ public class Git implements Serializable {
     }
 
     /**
-     * Print global log.
+     * Print each line of file NAME in the head commit with the commit
+     * that last changed it, its time and the line number.
+     *
+     * @param name String
      */
-    public void globalLog() {
+    public void blame(String name) {
+        String path = WorkTree.normalize(name);
+        Commit head = curBranch.getHead();
+        if (path == null || !head.contains(path)) {
+            System.out.println("File does not exist in that commit.");
+            return;
+        }
+        String[] commits = Blame.blame(head.getSHA1ID(), path);
+        List<String> lines = Blame.lines(head.getBlobsID(path));
+        SimpleDateFormat format =
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z");
+        Map<String, String> dates = new HashMap<>();
+        String number = "%" + Integer.toString(lines.size()).length() + "d";
+        for (int i = 0; i < lines.size(); i += 1) {
+            String date = dates.computeIfAbsent(commits[i],
+                    id -> format.format(CommitInfo.load(id).getTime()));
+            System.out.println(commits[i].substring(0, CommitInfo.SHORT_ID)
+                    + " (" + date + " " + String.format(number, i + 1)
+                    + ") " + lines.get(i));
+        }
+    }
+
+    /**
+     * Apply the changes of commit NAME to the current branch as a new
+     * commit.
+     *
+     * @param name String
+     */
+    public void cherryPick(String name) {
+        if (hasUncommittedChanges()) {
+            System.out.println("You have uncommitted changes.");
+            return;
+        }
+        String id = commitIDExists(name);
+        if (id == null) {
+            System.out.println("No commit with that id exists.");
+            return;
+        }
+        Commit pick = deserializeCommit(id);
+        if (pick.getMergeParent() != null) {
+            System.out.println("Cannot cherry-pick a merge commit.");
+            return;
+        }
+        Replay replay = new Replay(curBranch.getHead());
+        if (!replay.apply(pick)) {
+            System.out.println("No changes added to the commit.");
+            return;
+        }
+        finishReplay(replay, Reflog.CHERRY_PICK);
+    }
+
+    /**
+     * Replay the commits of the current branch since it split from
+     * branch NAME onto the head of NAME, following first parents. A
+     * merge commit is replayed as the changes from its first parent.
+     *
+     * @param name String
+     */
+    public void rebase(String name) {
+        if (hasUncommittedChanges()) {
+            System.out.println("You have uncommitted changes.");
+            return;
+        }
+        if (!branches.containsKey(name)) {
+            System.out.println("A branch with that name does not exist.");
+            return;
+        }
+        if (name.equals(curBranch.getName())) {
+            System.out.println("Cannot rebase a branch onto itself.");
+            return;
+        }
+        Commit onto = branches.get(name).getHead();
+        Commit head = curBranch.getHead();
+        MergeBase graph = MergeBase.current();
+        List<String> bases = graph.bases(head.getSHA1ID(),
+                onto.getSHA1ID());
+        if (bases.isEmpty()) {
+            System.out.println("No common ancestor in the shallow history.");
+        } else if (bases.contains(onto.getSHA1ID())) {
+            System.out.println("Current branch is up to date.");
+        } else if (bases.contains(head.getSHA1ID())) {
+            if (checkUntrackedOverwritten(onto)) {
+                System.out.println("There is an untracked file in the way;"
+                        + " delete it or add it first.");
+            } else {
+                reset(onto.getSHA1ID(), Reflog.REBASE);
+                System.out.println("Current branch fast-forwarded.");
+            }
+        } else {
+            ArrayList<Commit> picks = new ArrayList<>();
+            for (Commit c = head; c != null
+                    && !graph.isAncestor(c.getSHA1ID(), onto.getSHA1ID());
+                 c = deserializeCommit(c.getParent())) {
+                picks.add(c);
+            }
+            Collections.reverse(picks);
+            Replay replay = new Replay(onto);
+            for (Commit pick : picks) {
+                replay.apply(pick);
+            }
+            finishReplay(replay, Reflog.REBASE);
+        }
+    }
+
+    /**
+     * Make the last commit of REPLAY the head of the current branch:
+     * write its new commits, then check out the files that differ from
+     * the old head, once. The move is logged as operation OP.
+     *
+     * @param replay Replay
+     * @param op     char
+     */
+    private void finishReplay(Replay replay, char op) {
+        Commit head = curBranch.getHead();
+        Commit result = replay.tip();
+        Set<String> writing = new HashSet<>();
+        Set<String> removing = new HashSet<>();
+        for (String name : PathTable.diff(head.getPathTable(),
+                result.getPathTable())) {
+            (result.contains(name) ? writing : removing).add(name);
+        }
+        if (checkUntrackedOverwrittenMerge(writing, removing)) {
+            System.out.println("There is an untracked file in the way;"
+                    + " delete it or add it first.");
+            return;
+        }
+        for (Commit c : replay.made()) {
+            curBranch.writeCommitFile(c);
+            addMesID(c);
+        }
+        if (!checkoutChanges(head, result)) {
+            return;
+        }
+        curBranch.setHead(result, op);
+        curBranch.setStage(new Stages(result));
+        if (!replay.conflicts().isEmpty()) {
+            System.out.println("Encountered a merge conflict.");
+        }
+    }
+
+    /**
+     * Return whether any file is staged for addition or removal.
+     *
+     * @return boolean
+     */
+    private boolean hasUncommittedChanges() {
+        Stages stage = curBranch.getCurStage();
+        return !stage.getStagedFiles().isEmpty()
+                || !stage.getRemovingFiles().isEmpty();
+    }
+
+    /**
+     * Run stash subcommand ARGS: none to save the staged and modified
+     * files, pop to restore the newest entry, or list.
+     *
+     * @param args String[]
+     */
+    public void stash(String[] args) {
+        if (args.length == 0) {
+            stashSave();
+        } else if (args[0].equals("pop")) {
+            stashPop();
+        } else {
+            for (int i = 0; stashes != null && i < stashes.size(); i += 1) {
+                Commit entry = deserializeCommit(stashes.get(i));
+                if (entry != null) {
+                    System.out.println("stash@{" + i + "}: "
+                            + entry.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the stage and the modified tracked files as a stash entry,
+     * then return the working directory and stage to the head commit.
+     * An entry is two snapshot commits on the head: one of the files
+     * as staged, and on it one of the files as in the working
+     * directory. Only changed files are stored; every other file
+     * keeps the blob it already has.
+     */
+    private void stashSave() {
+        Commit head = curBranch.getHead();
+        Stages stage = curBranch.getCurStage();
+        String summary = curBranch.getName() + ": "
+                + head.getSHA1ID().substring(0, 7) + " "
+                + head.getMessage();
+        HashMap<String, String> staged = new HashMap<>(head.getBlobs());
+        staged.keySet().removeAll(stage.getRemovingFiles());
+        staged.putAll(stage.getStagedFiles());
+        Commit index = new Commit("index on " + summary,
+                head.getSHA1ID(), null, staged);
+
+        Stages working = new Stages(index);
+        List<String> present = new ArrayList<>();
+        for (String name : new TreeMap<>(staged).keySet()) {
+            if (new File(name).isFile()) {
+                present.add(name);
+            } else {
+                working.getRemovingFiles().add(name);
+            }
+        }
+        if (!working.addAll(present)) {
+            return;
+        }
+        HashMap<String, String> files = new HashMap<>(staged);
+        files.keySet().removeAll(working.getRemovingFiles());
+        files.putAll(working.getStagedFiles());
+        if (files.equals(head.getBlobs()) && staged.equals(files)) {
+            System.out.println("No local changes to save.");
+            return;
+        }
+        Commit entry = new Commit("WIP on " + summary, head.getSHA1ID(),
+                index.getSHA1ID(), files);
+        Storage.commits().put(index.getSHA1ID(), Utils.serialize(index));
+        Storage.commits().put(entry.getSHA1ID(), Utils.serialize(entry));
+        if (stashes == null) {
+            stashes = new ArrayList<>();
+        }
+        if (stashCommits == null) {
+            stashCommits = new HashSet<>();
+        }
+        stashes.add(0, entry.getSHA1ID());
+        stashCommits.add(index.getSHA1ID());
+        stashCommits.add(entry.getSHA1ID());
+        checkoutChanges(entry, head);
+        curBranch.setStage(new Stages(head));
+        System.out.println("Saved working directory and index state "
+                + entry.getMessage());
+    }
+
+    /**
+     * Apply the newest stash entry to the head commit with a merge
+     * against the head it was saved on, restoring its staged files to
+     * the stage, and drop it. On a conflict the entry is kept.
+     */
+    private void stashPop() {
+        if (stashes == null || stashes.isEmpty()) {
+            System.out.println("No stash entries found.");
+            return;
+        }
+        if (hasUncommittedChanges()) {
+            System.out.println("You have uncommitted changes.");
+            return;
+        }
+        Stages stage = curBranch.getCurStage();
+        Commit entry = deserializeCommit(stashes.get(0));
+        Commit index = entry == null ? null
+                : deserializeCommit(entry.getMergeParent());
+        Commit base = entry == null ? null
+                : deserializeCommit(entry.getParent());
+        if (index == null || base == null) {
+            return;
+        }
+        Commit head = curBranch.getHead();
+        Stages plan = new Stages(head);
+        plan.initMerge();
+        boolean conflict = MergeClassifier.classify(base.getPathTable(),
+                head.getPathTable(), entry.getPathTable(), plan);
+        Set<String> touched =
+                new HashSet<>(plan.getMergeCheckOutFiles().keySet());
+        touched.addAll(plan.getMergeConflicts().keySet());
+        if (checkUntrackedOverwrittenMerge(touched,
+                plan.getRemovingFiles())) {
+            System.out.println("There is an untracked file in the way;"
+                    + " delete it or add it first.");
+            return;
+        }
+        touched.addAll(plan.getRemovingFiles());
+        for (String name : touched) {
+            boolean present = new File(name).isFile();
+            if (head.contains(name) && (present
+                    ? stage.hasChangedFromLast(name)
+                    : !plan.getRemovingFiles().contains(name))) {
+                System.out.println("You have uncommitted changes.");
+                return;
+            }
+        }
+        if (!mergeFilesRestore(plan)) {
+            return;
+        }
+        for (String name : plan.getRemovingFiles()) {
+            if (new File(name).isFile()) {
+                WorkTree.delete(name);
+            }
+        }
+        Stages restored = new Stages(head);
+        for (String name : PathTable.diff(base.getPathTable(),
+                index.getPathTable())) {
+            String id = index.getBlobsID(name);
+            if (plan.getMergeConflicts().containsKey(name)) {
+                restored.getStagedFiles().put(name,
+                        plan.getStagedFiles().get(name));
+            } else if (!Objects.equals(head.getBlobsID(name),
+                    base.getBlobsID(name))) {
+                continue;
+            } else if (id != null) {
+                restored.getStagedFiles().put(name, id);
+            } else if (head.contains(name)) {
+                restored.getRemovingFiles().add(name);
+            }
+        }
+        curBranch.setStage(restored);
+        if (conflict) {
+            System.out.println("Encountered a merge conflict.");
+        } else {
+            stashes.remove(0);
+        }
+    }
+
+    /**
+     * Make the working directory, which holds the files of FROM, hold
+     * those of TO, deleting and then writing only the files that
+     * differ. Returns whether every file was written, after saying so
+     * if not.
+     *
+     * @param from Commit
+     * @param to   Commit
+     * @return boolean
+     */
+    private boolean checkoutChanges(Commit from, Commit to) {
+        List<String> changed = PathTable.diff(from.getPathTable(),
+                to.getPathTable());
+        for (String name : changed) {
+            if (!to.contains(name) && new File(name).isFile()) {
+                WorkTree.delete(name);
+            }
+        }
         try {
-            BufferedReader reader = new BufferedReader(
-                    new FileReader(".gitlet/globalLog.txt"));
-            String output = "";
-            String per = reader.readLine();
-            while (per != null) {
-                output += per;
-                per = reader.readLine();
-                if (per == null) {
-                    break;
-                } else if (per.equals("===")) {
-                    output += "\n";
-                    output += "\n";
-                } else {
-                    output += "\n";
+            for (String name : changed) {
+                if (to.contains(name)) {
+                    Blobs.restore(to.getBlobsID(name), new File(name));
                 }
             }
-            System.out.print(output);
-        } catch (FileNotFoundException e) {
-            System.out.println("Could not find file");
         } catch (IOException e) {
-            System.out.println("Could not read file");
+            System.out.println("Could not restore file.");
+            return false;
         }
+        return true;
+    }
 
+    /**
+     * Delete objects no branch, stage, tag or reflog entry can reach.
+     * ARGS may hold --prune=now to skip the grace period, or --prune=N
+     * to set it to N days; by default objects younger than two weeks
+     * are kept. Reflog entries older than 90 days are expired first,
+     * or older than N days given --reflog=N, or all with --reflog=now.
+     *
+     * @param args String[]
+     */
+    public void gc(String[] args) {
+        long grace = TimeUnit.DAYS.toMillis(GC_GRACE_DAYS);
+        long keepLog = TimeUnit.DAYS.toMillis(REFLOG_DAYS);
+        for (String arg : args) {
+            long days = -1;
+            if (arg.equals("--prune=now") || arg.equals("--reflog=now")) {
+                days = 0;
+            } else if (arg.matches("--(prune|reflog)=\\d{1,9}")) {
+                days = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+            }
+            if (days < 0) {
+                System.out.println("Incorrect operands.");
+                return;
+            } else if (arg.startsWith("--prune=")) {
+                grace = TimeUnit.DAYS.toMillis(days);
+            } else {
+                keepLog = TimeUnit.DAYS.toMillis(days);
+            }
+        }
+        Reflog.expire(System.currentTimeMillis() - keepLog);
+        GarbageCollector collector = new GarbageCollector(grace);
+        ArrayList<String> roots = new ArrayList<>(Reflog.ids());
+        for (Branch b : branches.values()) {
+            roots.add(b.getHeadID());
+            Stages stage = b.getCurStage();
+            if (stage != null) {
+                roots.add(stage.getNewestCommit().getSHA1ID());
+                collector.markBlobs(stage.getStagedFiles().values());
+            }
+        }
+        if (stashes != null) {
+            roots.addAll(stashes);
+        }
+        for (String[] tag : Refs.all().values()) {
+            collector.markBlobs(Collections.singletonList(tag[0]));
+            roots.add(tag[1] != null ? tag[1] : Refs.peelID(tag[0]));
+        }
+        collector.markCommits(roots);
+        collector.markRecent();
+        collector.markChunks();
+        collector.sweep();
+        if (messageToID != null) {
+            for (String id : collector.getRemovedCommits()) {
+                for (HashSet<String> ids : messageToID.values()) {
+                    ids.remove(id);
+                }
+            }
+            messageToID.values().removeIf(HashSet::isEmpty);
+        }
+        if (stashCommits != null) {
+            stashCommits.removeAll(collector.getRemovedCommits());
+        }
+        if (!collector.getRemovedCommits().isEmpty()) {
+            GlobalLog.rebuild(stashCommits());
+        }
+        System.out.println(collector.report());
     }
 
+    /**
+     * Print where the head of a branch has been, newest first. ARGS
+     * may hold -n N to print at most N entries and a branch name; by
+     * default every entry of the current branch is printed.
+     *
+     * @param args String[]
+     */
+    public void reflog(String[] args) {
+        int max = Integer.MAX_VALUE;
+        String name = curBranch.getName();
+        for (int i = 0; i < args.length; i += 1) {
+            if (args[i].equals("-n")) {
+                i += 1;
+                max = Integer.parseInt(args[i]);
+            } else {
+                name = args[i];
+            }
+        }
+        if (!branches.containsKey(name)) {
+            System.out.println("A branch with that name does not exist.");
+            return;
+        }
+        List<Reflog.Entry> entries = Reflog.read(name, max);
+        for (int i = 0; i < entries.size(); i += 1) {
+            Reflog.Entry e = entries.get(i);
+            System.out.println(e.newID.substring(0, 7) + " " + name + "@{"
+                    + i + "}: " + e.opName());
+        }
+    }
+
+    /**
+     * Run tag command ARGS: none to list the tags, NAME [COMMIT] to
+     * tag a commit, by default the head, or -a NAME MESSAGE [COMMIT]
+     * to tag it with a message.
+     *
+     * @param args String[]
+     */
+    public void tag(String[] args) {
+        if (args.length == 0) {
+            for (String name : Refs.all().keySet()) {
+                System.out.println(name);
+            }
+            return;
+        }
+        boolean annotated = args[0].equals("-a");
+        String name = annotated ? args[1] : args[0];
+        int commitArg = annotated ? 3 : 1;
+        String commit = curBranch.getHeadID();
+        if (args.length > commitArg) {
+            commit = commitIDExists(args[commitArg]);
+            if (commit == null) {
+                System.out.println("No commit with that id exists.");
+                return;
+            }
+        }
+        if (!Refs.validName(name)) {
+            System.out.println("Invalid tag name.");
+        } else if (Refs.resolve(name) != null) {
+            System.out.println("A tag with that name already exists.");
+        } else {
+            Refs.set(name, annotated
+                    ? Refs.annotate(name, commit, args[2]) : commit);
+        }
+    }
+
+    /**
+     * Delete tag NAME.
+     *
+     * @param name String
+     */
+    public void rmTag(String name) {
+        try {
+            if (!Refs.delete(name)) {
+                System.out.println("A tag with that name does not exist.");
+            }
+        } catch (IOException e) {
+            System.out.println("IOException");
+        }
+    }
+
+    /**
+     * Move every loose tag into the packed refs file.
+     */
+    public void packRefs() {
+        try {
+            System.out.println("Packed " + Refs.pack() + " tags.");
+        } catch (IOException e) {
+            System.out.println("IOException");
+        }
+    }
+
+    /**
+     * Remember the repository whose .gitlet directory is DIR as
+     * remote NAME.
+     *
+     * @param name String
+     * @param dir  String
+     */
+    public void addRemote(String name, String dir) {
+        if (remotes == null) {
+            remotes = new TreeMap<>();
+        }
+        if (remotes.containsKey(name)) {
+            System.out.println("A remote with that name already exists.");
+            return;
+        }
+        remotes.put(name, dir);
+    }
+
+    /**
+     * Forget remote NAME.
+     *
+     * @param name String
+     */
+    public void rmRemote(String name) {
+        if (remotes == null || remotes.remove(name) == null) {
+            System.out.println("A remote with that name does not exist.");
+        }
+    }
+
+    /**
+     * Return remote NAME, or null after saying why if it cannot be
+     * used.
+     *
+     * @param name String
+     * @return Remote
+     */
+    private Remote remote(String name) {
+        Remote result = remotes == null || !remotes.containsKey(name) ? null
+                : new Remote(remotes.get(name));
+        if (result == null || !result.exists()) {
+            System.out.println("Remote directory not found.");
+            return null;
+        }
+        if (result.isLocal()) {
+            System.out.println("A remote cannot be this repository.");
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Send the current head to branch BRANCHNAME of remote REMOTENAME,
+     * which must be an ancestor of it. Only the commits and blobs the
+     * remote lacks are sent.
+     *
+     * @param remoteName String
+     * @param branchName String
+     */
+    public void push(String remoteName, String branchName) {
+        Remote remote = remote(remoteName);
+        if (remote == null) {
+            return;
+        }
+        RepoLock lock = remote.lock();
+        if (lock == null) {
+            System.out.println("Remote is busy; try again later.");
+            return;
+        }
+        try {
+            Git other = remote.load();
+            Branch target = other.branches.get(branchName);
+            Commit head = curBranch.getHead();
+            if (target != null
+                    && !isAncestor(target.getHeadID(), head.getSHA1ID())) {
+                System.out.println("Please pull down remote changes before "
+                        + "pushing.");
+                return;
+            }
+            remote.push(head.getSHA1ID());
+            if (target == null) {
+                target = new Branch(branchName);
+                other.branches.put(branchName, target);
+            }
+            target.setHead(head, Reflog.PUSH, remote.logs());
+            target.setStage(new Stages(head));
+            remote.save(other);
+            Reflog.flush(remote.logs());
+        } catch (IOException e) {
+            System.out.println("IOException");
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Copy branch BRANCHNAME of remote REMOTENAME into local branch
+     * REMOTENAME/BRANCHNAME, receiving only the commits and blobs
+     * missing here. Returns whether it succeeded.
+     *
+     * @param remoteName String
+     * @param branchName String
+     * @return boolean
+     */
+    public boolean fetch(String remoteName, String branchName) {
+        Remote remote = remote(remoteName);
+        if (remote == null) {
+            return false;
+        }
+        RepoLock lock = remote.lock();
+        if (lock == null) {
+            System.out.println("Remote is busy; try again later.");
+            return false;
+        }
+        String headID;
+        try {
+            Branch source = remote.load().branches.get(branchName);
+            if (source == null) {
+                System.out.println("That remote does not have that branch.");
+                return false;
+            }
+            headID = source.getHeadID();
+            remote.fetch(headID);
+        } catch (IOException e) {
+            System.out.println("IOException");
+            return false;
+        } finally {
+            lock.release();
+        }
+        String name = remoteName + "/" + branchName;
+        Branch local = branches.get(name);
+        if (local == null) {
+            local = new Branch(name);
+            branches.put(name, local);
+        }
+        Commit head = deserializeCommit(headID);
+        local.setHead(head, Reflog.FETCH);
+        local.setStage(new Stages(head));
+        return true;
+    }
+
+    /**
+     * Fetch branch BRANCHNAME of remote REMOTENAME and merge it into
+     * the current branch.
+     *
+     * @param remoteName String
+     * @param branchName String
+     */
+    public void pull(String remoteName, String branchName) {
+        if (fetch(remoteName, branchName)) {
+            merge(remoteName + "/" + branchName);
+        }
+    }
+
+    /**
+     * Return whether commit ANCESTOR is DESCENDANT or one of its
+     * ancestors.
+     *
+     * @param ancestor   String
+     * @param descendant String
+     * @return boolean
+     */
+    private static boolean isAncestor(String ancestor, String descendant) {
+        return Storage.commits().exists(ancestor)
+                && MergeBase.current().isAncestor(ancestor, descendant);
+    }
+
+    /**
+     * Build the metadata index from every commit and chunked blob in
+     * the repository.
+     */
+    public void reindex() {
+        MetaIndex meta = Storage.enableMeta();
+        int count = 0;
+        for (String id : Storage.commits().idsWithPrefix("")) {
+            if (!stashCommits().contains(id)) {
+                meta.recordCommit(deserializeCommit(id));
+                count += 1;
+            }
+        }
+        for (int i = 0; i < 256; i += 1) {
+            String prefix = String.format("%02x", i);
+            for (String id : Storage.blobs().idsWithPrefix(prefix)) {
+                if (id.length() == Utils.UID_LENGTH
+                        && Blobs.chunks(id) != null) {
+                    meta.recordManifest(id);
+                }
+            }
+        }
+        GlobalLog.rebuild(stashCommits());
+        System.out.println("Indexed " + count + " commits.");
+    }
+
+    /**
+     * Print global log.
+     */
+    public void globalLog() {
+        GlobalLog.print(stashCommits());
+    }
+
+    /**
+     * Return the commits made by stash that are still stored.
+     *
+     * @return Set
+     */
+    private Set<String> stashCommits() {
+        return stashCommits == null ? Collections.emptySet() : stashCommits;
+    }
+
+
+    /**
+     * Move all loose objects stored in the old flat layout into
+     * fan-out directories.
+     */
+    public static void migrateLayout() {
+        int moved = ObjectLayout.migrate(Storage.COMMITS_DIR)
+                + ObjectLayout.migrate(Storage.BLOBS_DIR);
+        System.out.println("Migrated " + moved + " objects.");
+    }
 
     /**
      * Return a desired branch.
@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The global log: every commit of the repository, oldest first, as
+ * printed by log. Commits made during a command are queued and
+ * appended in one buffered write when the command has saved, so the
+ * log only names commits that are stored. Being derived from the
+ * commit store, the log can always be rebuilt from it, which reindex
+ * and gc do, and global-log does when the file is missing.
+ *
+ * @author Tony Hsu
+ */
+class GlobalLog {
+
+    /**
+     * log file, relative to a working directory.
+     */
+    static final String FILE = ".gitlet/globalLog.txt";
+
+    /**
+     * commits made by the current command and not yet logged.
+     */
+    private static final List<Commit> PENDING = new ArrayList<>();
+
+    /**
+     * Queue CUR to be logged by the next flush.
+     *
+     * @param cur Commit
+     */
+    static synchronized void append(Commit cur) {
+        PENDING.add(cur);
+    }
+
+    /**
+     * Append the queued commits to the log of the current repository.
+     */
+    static synchronized void flush() {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        try {
+            write(new File(FILE), PENDING, true);
+        } catch (IOException e) {
+            System.out.println("Cannot write log.");
+        }
+        PENDING.clear();
+    }
+
+    /**
+     * Append COMMITS, in order, to log file TARGET.
+     *
+     * @param target  File
+     * @param commits Collection
+     * @throws IOException if TARGET cannot be written
+     */
+    static void append(File target, Collection<Commit> commits)
+            throws IOException {
+        write(target, commits, true);
+    }
+
+    /**
+     * Rewrite the log of the current repository from its commit
+     * store, leaving out the commits in HIDDEN. Returns the number of
+     * commits logged.
+     *
+     * @param hidden Set
+     * @return int
+     */
+    static int rebuild(Set<String> hidden) {
+        List<Commit> commits = new ArrayList<>();
+        for (String id : Storage.commits().idsWithPrefix("")) {
+            if (id.length() == Utils.UID_LENGTH && !hidden.contains(id)) {
+                commits.add(Git.deserializeCommit(id));
+            }
+        }
+        commits.sort(Comparator.comparing(Commit::getTime)
+                .thenComparing(Commit::getSHA1ID));
+        File tmp = new File(FILE + ".tmp");
+        try {
+            write(tmp, commits, false);
+            Files.move(tmp.toPath(), new File(FILE).toPath(),
+                    REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Cannot write log.");
+        }
+        return commits.size();
+    }
+
+    /**
+     * Print the log of the current repository, rebuilding it first
+     * without the commits in HIDDEN if it is missing.
+     *
+     * @param hidden Set
+     */
+    static void print(Set<String> hidden) {
+        File file = new File(FILE);
+        if (!file.isFile()) {
+            rebuild(hidden);
+        }
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line != null) {
+                out.print(line);
+            }
+            for (line = reader.readLine(); line != null;
+                 line = reader.readLine()) {
+                out.print(line.equals("===") ? "\n\n" : "\n");
+                out.print(line);
+            }
+        } catch (IOException e) {
+            out.println("Could not read file");
+        }
+        out.flush();
+    }
+
+    /**
+     * Write COMMITS to log file TARGET, after its contents if APPEND.
+     *
+     * @param target  File
+     * @param commits Collection
+     * @param append  boolean
+     * @throws IOException if TARGET cannot be written
+     */
+    private static void write(File target, Collection<Commit> commits,
+                              boolean append) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(target, append),
+                StandardCharsets.UTF_8))) {
+            for (Commit cur : commits) {
+                out.write(cur.toString());
+                out.write("\n");
+            }
+        }
+    }
+
+}
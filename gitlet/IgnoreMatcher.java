@@ -0,0 +1,445 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules of a .gitletignore file, compiled for matching during
+ * walks of the working tree.
+ *
+ * Each line is a pattern; blank lines and lines starting with # are
+ * skipped. A pattern starting with ! re-includes what an earlier one
+ * excluded, and one ending in / matches only directories. A pattern
+ * with no other / matches the name of an entry at any depth; otherwise
+ * it matches the whole path from the working directory. * matches any
+ * run of characters but /, ? any one character, [...] one character of
+ * a set or range, ** whole directories, and \ escapes the next
+ * character. The last pattern that matches an entry decides whether it
+ * is ignored, and an ignored directory is not entered at all.
+ *
+ * Most patterns are plain names such as target or node_modules, plain
+ * paths, or a * followed by a name ending such as *.class. These are
+ * compiled into hash tables and a trie of reversed endings, so an
+ * entry is matched against all of them in time proportional to the
+ * length of its name. Only the remaining patterns are tried one by
+ * one, each already split into path segments.
+ *
+ * @author Tony Hsu
+ */
+class IgnoreMatcher {
+
+    /**
+     * A node of the trie of reversed name endings.
+     */
+    private static class Node {
+        /**
+         * children by next character from the end.
+         */
+        private final Map<Character, Node> next = new HashMap<>();
+        /**
+         * last rule for files and directories ending here, or -1.
+         */
+        private int any = -1;
+        /**
+         * last rule for directories only ending here, or -1.
+         */
+        private int dirs = -1;
+    }
+
+    /**
+     * A pattern matched segment by segment.
+     */
+    private static class Glob {
+        /**
+         * index of the rule.
+         */
+        private final int rule;
+        /**
+         * whether it matches only directories.
+         */
+        private final boolean dirOnly;
+        /**
+         * whether it matches whole paths rather than names.
+         */
+        private final boolean anchored;
+        /**
+         * the pattern's path segments.
+         */
+        private final String[] segments;
+
+        /**
+         * Glob constructor.
+         *
+         * @param index    int
+         * @param dirOnly  boolean
+         * @param anchored boolean
+         * @param pattern  String
+         */
+        Glob(int index, boolean dirOnly, boolean anchored, String pattern) {
+            rule = index;
+            this.dirOnly = dirOnly;
+            this.anchored = anchored;
+            segments = pattern.split("/");
+        }
+    }
+
+    /**
+     * matcher of the current repository and the ignore file it was
+     * compiled from.
+     */
+    private static IgnoreMatcher current;
+    /**
+     * modification time and length of that ignore file.
+     */
+    private static long[] currentStamp;
+
+    /**
+     * whether each rule re-includes.
+     */
+    private final List<Boolean> negated = new ArrayList<>();
+    /**
+     * last rule for each plain name.
+     */
+    private final Map<String, Integer> names = new HashMap<>();
+    /**
+     * last directory-only rule for each plain name.
+     */
+    private final Map<String, Integer> dirNames = new HashMap<>();
+    /**
+     * last rule for each plain path.
+     */
+    private final Map<String, Integer> paths = new HashMap<>();
+    /**
+     * last directory-only rule for each plain path.
+     */
+    private final Map<String, Integer> dirPaths = new HashMap<>();
+    /**
+     * trie of reversed endings of * patterns.
+     */
+    private final Node endings = new Node();
+    /**
+     * all other patterns, in order.
+     */
+    private final List<Glob> globs = new ArrayList<>();
+
+    /**
+     * Return the matcher of LINES, the lines of an ignore file.
+     *
+     * @param lines List
+     * @return IgnoreMatcher
+     */
+    static IgnoreMatcher compile(List<String> lines) {
+        IgnoreMatcher result = new IgnoreMatcher();
+        for (String line : lines) {
+            result.add(line);
+        }
+        return result;
+    }
+
+    /**
+     * Return the matcher of the ignore file of the current repository,
+     * compiling it again only when the file has changed.
+     *
+     * @return IgnoreMatcher
+     */
+    static synchronized IgnoreMatcher current() {
+        File file = new File(WorkTree.IGNORE_FILE);
+        long[] stamp = {file.lastModified(), file.length()};
+        if (current == null || stamp[0] != currentStamp[0]
+                || stamp[1] != currentStamp[1]) {
+            List<String> lines = new ArrayList<>();
+            if (file.isFile()) {
+                for (String line
+                        : Utils.readContentsAsString(file).split("\n")) {
+                    lines.add(line);
+                }
+            }
+            current = compile(lines);
+            currentStamp = stamp;
+        }
+        return current;
+    }
+
+    /**
+     * Forget the compiled ignore file, as when changing repositories.
+     */
+    static synchronized void reset() {
+        current = null;
+    }
+
+    /**
+     * Compile LINE as the next rule.
+     *
+     * @param line String
+     */
+    private void add(String line) {
+        String pattern = trimEnd(line);
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return;
+        }
+        boolean negate = pattern.startsWith("!");
+        if (negate) {
+            pattern = pattern.substring(1);
+        }
+        boolean dirOnly = pattern.endsWith("/");
+        while (pattern.endsWith("/")) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        boolean anchored = pattern.contains("/");
+        while (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return;
+        }
+        int rule = negated.size();
+        negated.add(negate);
+        if (isPlain(pattern)) {
+            String plain = unescape(pattern);
+            if (anchored) {
+                (dirOnly ? dirPaths : paths).put(plain, rule);
+            } else {
+                (dirOnly ? dirNames : names).put(plain, rule);
+            }
+        } else if (!anchored && pattern.charAt(0) == '*'
+                && isPlain(pattern.substring(1))) {
+            Node node = endings;
+            String ending = unescape(pattern.substring(1));
+            for (int i = ending.length() - 1; i >= 0; i -= 1) {
+                node = node.next.computeIfAbsent(ending.charAt(i),
+                        c -> new Node());
+            }
+            if (dirOnly) {
+                node.dirs = rule;
+            } else {
+                node.any = rule;
+            }
+        } else {
+            globs.add(new Glob(rule, dirOnly, anchored, pattern));
+        }
+    }
+
+    /**
+     * Return whether the entry named NAME at PATH, a directory if
+     * DIRECTORY, is ignored.
+     *
+     * @param path      String
+     * @param name      String
+     * @param directory boolean
+     * @return boolean
+     */
+    boolean isIgnored(String path, String name, boolean directory) {
+        int best = Math.max(names.getOrDefault(name, -1),
+                paths.getOrDefault(path, -1));
+        if (directory) {
+            best = Math.max(best, Math.max(dirNames.getOrDefault(name, -1),
+                    dirPaths.getOrDefault(path, -1)));
+        }
+        Node node = endings;
+        for (int i = name.length(); node != null; i -= 1) {
+            best = Math.max(best, directory ? Math.max(node.any, node.dirs)
+                    : node.any);
+            node = i > 0 ? node.next.get(name.charAt(i - 1)) : null;
+        }
+        for (Glob glob : globs) {
+            if (glob.rule > best && (directory || !glob.dirOnly)
+                    && (glob.anchored
+                    ? matchPath(glob.segments, 0, path.split("/"), 0)
+                    : matchSegment(glob.segments[0], 0, name, 0))) {
+                best = glob.rule;
+            }
+        }
+        return best >= 0 && !negated.get(best);
+    }
+
+    /**
+     * Return whether segments PATTERN[P..] match segments NAMES[N..].
+     * A final ** matches one or more segments, any other none or more.
+     *
+     * @param pattern String[]
+     * @param p       int
+     * @param names   String[]
+     * @param n       int
+     * @return boolean
+     */
+    private static boolean matchPath(String[] pattern, int p, String[] names,
+                                     int n) {
+        if (p == pattern.length) {
+            return n == names.length;
+        }
+        if (pattern[p].equals("**")) {
+            int first = p == pattern.length - 1 ? n + 1 : n;
+            for (int skip = first; skip <= names.length; skip += 1) {
+                if (matchPath(pattern, p + 1, names, skip)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return n < names.length && matchSegment(pattern[p], 0, names[n], 0)
+                && matchPath(pattern, p + 1, names, n + 1);
+    }
+
+    /**
+     * Return whether PATTERN[P..] matches NAME[N..] within one segment.
+     *
+     * @param pattern String
+     * @param p       int
+     * @param name    String
+     * @param n       int
+     * @return boolean
+     */
+    private static boolean matchSegment(String pattern, int p, String name,
+                                        int n) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            if (c == '*') {
+                while (p < pattern.length() && pattern.charAt(p) == '*') {
+                    p += 1;
+                }
+                for (int rest = n; rest <= name.length(); rest += 1) {
+                    if (matchSegment(pattern, p, name, rest)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (n == name.length()) {
+                return false;
+            }
+            if (c == '[') {
+                int end = classEnd(pattern, p);
+                if (end > 0) {
+                    if (!inClass(pattern, p + 1, end, name.charAt(n))) {
+                        return false;
+                    }
+                    p = end + 1;
+                    n += 1;
+                    continue;
+                }
+            }
+            if (c == '\\' && p + 1 < pattern.length()) {
+                p += 1;
+                c = pattern.charAt(p);
+            } else if (c == '?') {
+                c = name.charAt(n);
+            }
+            if (c != name.charAt(n)) {
+                return false;
+            }
+            p += 1;
+            n += 1;
+        }
+        return n == name.length();
+    }
+
+    /**
+     * Return the index of the ] closing the set opened at PATTERN[P],
+     * or -1 if it is not closed.
+     *
+     * @param pattern String
+     * @param p       int
+     * @return int
+     */
+    private static int classEnd(String pattern, int p) {
+        int i = p + 1;
+        if (i < pattern.length() && pattern.charAt(i) == '!') {
+            i += 1;
+        }
+        if (i < pattern.length() && pattern.charAt(i) == ']') {
+            i += 1;
+        }
+        return pattern.indexOf(']', i);
+    }
+
+    /**
+     * Return whether C is in the set PATTERN[FROM..TO).
+     *
+     * @param pattern String
+     * @param from    int
+     * @param to      int
+     * @param c       char
+     * @return boolean
+     */
+    private static boolean inClass(String pattern, int from, int to,
+                                   char c) {
+        boolean negate = pattern.charAt(from) == '!';
+        if (negate) {
+            from += 1;
+        }
+        boolean found = false;
+        for (int i = from; i < to; i += 1) {
+            char low = pattern.charAt(i);
+            char high = low;
+            if (i + 2 < to && pattern.charAt(i + 1) == '-') {
+                high = pattern.charAt(i + 2);
+                i += 2;
+            }
+            if (low <= c && c <= high) {
+                found = true;
+            }
+        }
+        return found != negate;
+    }
+
+    /**
+     * Return whether PATTERN has no wildcards.
+     *
+     * @param pattern String
+     * @return boolean
+     */
+    private static boolean isPlain(String pattern) {
+        for (int i = 0; i < pattern.length(); i += 1) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                i += 1;
+            } else if (c == '*' || c == '?' || c == '[') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return PATTERN, which has no wildcards, without its escapes.
+     *
+     * @param pattern String
+     * @return String
+     */
+    private static String unescape(String pattern) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i += 1) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                i += 1;
+                c = pattern.charAt(i);
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Return LINE without its line ending and trailing spaces, unless
+     * a space is escaped.
+     *
+     * @param line String
+     * @return String
+     */
+    private static String trimEnd(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == '\r'
+                || line.charAt(end - 1) == ' ')) {
+            if (line.charAt(end - 1) == ' ' && end > 1
+                    && line.charAt(end - 2) == '\\') {
+                break;
+            }
+            end -= 1;
+        }
+        return line.substring(0, end);
+    }
+
+}
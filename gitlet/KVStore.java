@@ -0,0 +1,531 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A small log-structured key-value file. Recent updates are appended
+ * to BASE.log and replayed into a sorted in-memory table on open;
+ * everything older lives in BASE.sst, an immutable file of records
+ * sorted by key followed by an array of record offsets, so a lookup
+ * is a binary search and a prefix scan is one seek plus a sequential
+ * read. Once the log holds enough records, close merges it into a
+ * fresh table.
+ *
+ * @author Tony Hsu
+ */
+class KVStore {
+
+    /**
+     * log records that trigger a compaction on close.
+     */
+    static final int COMPACT_THRESHOLD = 4096;
+    /**
+     * log record marker for a put.
+     */
+    private static final byte PUT = 1;
+    /**
+     * log record marker for a delete.
+     */
+    private static final byte DELETE = 0;
+    /**
+     * size of the table footer: index position and record count.
+     */
+    private static final int FOOTER = 12;
+
+    /**
+     * sorted table file.
+     */
+    private File tableFile;
+    /**
+     * update log file.
+     */
+    private File logFile;
+    /**
+     * updates not yet in the table; a null value is a deletion.
+     */
+    private TreeMap<String, String> memtable = new TreeMap<>();
+    /**
+     * number of records in the log.
+     */
+    private int logRecords;
+    /**
+     * length of the complete records of the log, as replayed.
+     */
+    private long logEnd;
+    /**
+     * whether this process has written to the store.
+     */
+    private boolean dirty;
+    /**
+     * appender for the log, opened on first update.
+     */
+    private DataOutputStream log;
+    /**
+     * open table, or null if there is none.
+     */
+    private RandomAccessFile table;
+    /**
+     * position of the offset array in the table.
+     */
+    private long indexStart;
+    /**
+     * number of records in the table.
+     */
+    private int count;
+
+    /**
+     * Open or create the store whose files are BASE.sst and BASE.log.
+     *
+     * @param base String
+     */
+    KVStore(String base) {
+        tableFile = new File(base + ".sst");
+        logFile = new File(base + ".log");
+        try {
+            openTable();
+            replayLog();
+        } catch (IOException e) {
+            throw Utils.error("cannot open %s: %s", base, e.getMessage());
+        }
+    }
+
+    /**
+     * Create the store whose files are BASE.sst and BASE.log, empty,
+     * unless it exists.
+     *
+     * @param base String
+     */
+    static void create(String base) {
+        try {
+            new File(base + ".log").createNewFile();
+        } catch (IOException e) {
+            throw Utils.error("cannot create %s: %s", base, e.getMessage());
+        }
+    }
+
+    /**
+     * Return whether a store with base name BASE exists.
+     *
+     * @param base String
+     * @return boolean
+     */
+    static boolean exists(String base) {
+        return new File(base + ".log").exists()
+                || new File(base + ".sst").exists();
+    }
+
+    /**
+     * Return the value of KEY, or null.
+     *
+     * @param key String
+     * @return String
+     */
+    String get(String key) {
+        if (memtable.containsKey(key)) {
+            return memtable.get(key);
+        }
+        if (table == null) {
+            return null;
+        }
+        try {
+            int i = lowerBound(key);
+            if (i < count) {
+                String[] record = readRecord(offset(i));
+                if (record[0].equals(key)) {
+                    return record[1];
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw Utils.error("cannot read %s", tableFile);
+        }
+    }
+
+    /**
+     * Set KEY to VALUE.
+     *
+     * @param key   String
+     * @param value String
+     */
+    synchronized void put(String key, String value) {
+        append(PUT, key, value);
+        memtable.put(key, value);
+    }
+
+    /**
+     * Remove KEY.
+     *
+     * @param key String
+     */
+    synchronized void delete(String key) {
+        append(DELETE, key, "");
+        memtable.put(key, null);
+    }
+
+    /**
+     * Return all entries whose key starts with PREFIX, in key order.
+     *
+     * @param prefix String
+     * @return SortedMap
+     */
+    SortedMap<String, String> scan(String prefix) {
+        return scan(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return at most LIMIT entries whose key starts with PREFIX, in
+     * key order.
+     *
+     * @param prefix String
+     * @param limit  int
+     * @return SortedMap
+     */
+    SortedMap<String, String> scan(String prefix, int limit) {
+        TreeMap<String, String> result = new TreeMap<>();
+        SortedMap<String, String> recent =
+                memtable.subMap(prefix, prefix + Character.MAX_VALUE);
+        try {
+            if (table != null) {
+                int i = lowerBound(prefix);
+                if (i < count) {
+                    DataInputStream in = tableReader(offset(i));
+                    int wanted = limit;
+                    for (; i < count && wanted > 0; i += 1) {
+                        String[] record = readRecord(in);
+                        if (!record[0].startsWith(prefix)) {
+                            break;
+                        }
+                        if (!recent.containsKey(record[0])) {
+                            result.put(record[0], record[1]);
+                            wanted -= 1;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw Utils.error("cannot read %s", tableFile);
+        }
+        for (Map.Entry<String, String> e : recent.entrySet()) {
+            if (e.getValue() != null) {
+                result.put(e.getKey(), e.getValue());
+            }
+        }
+        while (result.size() > limit) {
+            result.remove(result.lastKey());
+        }
+        return result;
+    }
+
+    /**
+     * Flush pending updates, compacting the log into the table if it
+     * has grown past COMPACT_THRESHOLD records. A store that was only
+     * read is left untouched, so readers need no lock.
+     */
+    void close() {
+        try {
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+            if (dirty && logRecords >= COMPACT_THRESHOLD) {
+                compact();
+            }
+            if (table != null) {
+                table.close();
+                table = null;
+            }
+        } catch (IOException e) {
+            throw Utils.error("cannot write %s", logFile);
+        }
+    }
+
+    /**
+     * Merge the log into a new table and empty the log.
+     *
+     * @throws IOException on write failure
+     */
+    void compact() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        File tmp = new File(tableFile.getPath() + ".tmp");
+        long[] offsets = new long[Math.max(16, count + memtable.size())];
+        int n = 0;
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)));
+        long pos = 0;
+        Iterator<Map.Entry<String, String>> recent =
+                memtable.entrySet().iterator();
+        Map.Entry<String, String> next = recent.hasNext() ? recent.next()
+                : null;
+        DataInputStream in = table == null ? null : tableReader(0);
+        for (int i = 0; i <= count; i += 1) {
+            String[] old = i < count && in != null ? readRecord(in) : null;
+            while (next != null
+                    && (old == null || next.getKey().compareTo(old[0]) <= 0)) {
+                if (old != null && next.getKey().equals(old[0])) {
+                    old = null;
+                }
+                if (next.getValue() != null) {
+                    offsets[n++] = pos;
+                    pos += writeRecord(out, next.getKey(), next.getValue());
+                }
+                next = recent.hasNext() ? recent.next() : null;
+            }
+            if (old != null) {
+                offsets[n++] = pos;
+                pos += writeRecord(out, old[0], old[1]);
+            }
+        }
+        for (int i = 0; i < n; i += 1) {
+            out.writeLong(offsets[i]);
+        }
+        out.writeLong(pos);
+        out.writeInt(n);
+        out.close();
+        if (table != null) {
+            table.close();
+        }
+        Files.move(tmp.toPath(), tableFile.toPath(),
+                REPLACE_EXISTING, ATOMIC_MOVE);
+        new FileOutputStream(logFile).close();
+        memtable.clear();
+        logRecords = 0;
+        logEnd = 0;
+        openTable();
+    }
+
+    /**
+     * Open the table file, if it exists.
+     *
+     * @throws IOException on read failure
+     */
+    private void openTable() throws IOException {
+        table = null;
+        count = 0;
+        if (!tableFile.exists()) {
+            return;
+        }
+        table = new RandomAccessFile(tableFile, "r");
+        table.seek(table.length() - FOOTER);
+        indexStart = table.readLong();
+        count = table.readInt();
+    }
+
+    /**
+     * Read the log into the memtable, up to the last complete record.
+     * A record cut short, by a crash or by a writer still appending,
+     * is left alone: the file is only changed by append, which runs
+     * under the repository lock.
+     *
+     * @throws IOException on read failure
+     */
+    private void replayLog() throws IOException {
+        if (!logFile.exists()) {
+            return;
+        }
+        long length = logFile.length();
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(logFile)))) {
+            while (good < length) {
+                byte op = in.readByte();
+                byte[] key;
+                byte[] value;
+                try {
+                    key = readBytes(in, length - good - 9);
+                    value = readBytes(in, length - good - 9 - key.length);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (op != PUT && op != DELETE) {
+                    break;
+                }
+                memtable.put(new String(key, StandardCharsets.UTF_8),
+                        op == PUT ? new String(value, StandardCharsets.UTF_8)
+                        : null);
+                logRecords += 1;
+                good += 9 + key.length + value.length;
+            }
+        }
+        logEnd = good;
+    }
+
+    /**
+     * Append an update to the log. Before the first, a record cut
+     * short at the end of the log is cut off, so that updates follow
+     * the last complete record.
+     *
+     * @param op    byte
+     * @param key   String
+     * @param value String
+     */
+    private void append(byte op, String key, String value) {
+        try {
+            if (log == null) {
+                if (logFile.length() > logEnd) {
+                    try (RandomAccessFile file =
+                                 new RandomAccessFile(logFile, "rw")) {
+                        file.setLength(logEnd);
+                    }
+                }
+                log = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(logFile, true)));
+            }
+            log.writeByte(op);
+            logEnd += 1 + writeRecord(log, key, value);
+            logRecords += 1;
+            dirty = true;
+        } catch (IOException e) {
+            throw Utils.error("cannot write %s", logFile);
+        }
+    }
+
+    /**
+     * Return the index of the first table record whose key is not
+     * less than KEY.
+     *
+     * @param key String
+     * @return int
+     * @throws IOException on read failure
+     */
+    private int lowerBound(String key) throws IOException {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (readRecord(offset(mid))[0].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Return the position of table record I.
+     *
+     * @param i int
+     * @return long
+     * @throws IOException on read failure
+     */
+    private long offset(int i) throws IOException {
+        table.seek(indexStart + 8L * i);
+        return table.readLong();
+    }
+
+    /**
+     * Return a buffered reader over the table starting at POS.
+     *
+     * @param pos long
+     * @return DataInputStream
+     * @throws IOException on read failure
+     */
+    private DataInputStream tableReader(long pos) throws IOException {
+        table.seek(pos);
+        return new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(table.getChannel())));
+    }
+
+    /**
+     * Read the table record at POS.
+     *
+     * @param pos long
+     * @return String[]
+     * @throws IOException on read failure
+     */
+    private String[] readRecord(long pos) throws IOException {
+        table.seek(pos);
+        return new String[] {readString(table), readString(table)};
+    }
+
+    /**
+     * Read a key and value from IN.
+     *
+     * @param in DataInputStream
+     * @return String[]
+     * @throws IOException on read failure
+     */
+    private static String[] readRecord(DataInputStream in)
+            throws IOException {
+        return new String[] {readString(in), readString(in)};
+    }
+
+    /**
+     * Read a length-prefixed byte string of at most MAX bytes from IN.
+     * A longer or negative length can only be part of a record cut
+     * short, and ends the input like the end of the file.
+     *
+     * @param in  DataInput
+     * @param max long
+     * @return byte[]
+     * @throws IOException on read failure
+     */
+    private static byte[] readBytes(DataInput in, long max)
+            throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > max) {
+            throw new EOFException("record cut short");
+        }
+        byte[] data = new byte[n];
+        in.readFully(data);
+        return data;
+    }
+
+    /**
+     * Read a length-prefixed UTF-8 string from IN.
+     *
+     * @param in DataInput
+     * @return String
+     * @throws IOException on read failure
+     */
+    private static String readString(DataInput in)
+            throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write KEY and VALUE to OUT, returning the number of bytes.
+     *
+     * @param out   DataOutputStream
+     * @param key   String
+     * @param value String
+     * @return int
+     * @throws IOException on write failure
+     */
+    private static int writeRecord(DataOutputStream out, String key,
+                                   String value) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(k.length);
+        out.write(k);
+        out.writeInt(v.length);
+        out.write(v);
+        return 8 + k.length + v.length;
+    }
+
+}
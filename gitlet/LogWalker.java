@@ -0,0 +1,46 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over the first-parent history of a commit, newest
+ * first. Each commit is loaded only when it is reached, so stopping
+ * early costs only the commits actually visited. The walk ends at the
+ * boundary of a shallow repository.
+ *
+ * @author Tony Hsu
+ */
+class LogWalker implements Iterator<CommitInfo> {
+
+    /**
+     * commit returned by the next call to next, or null.
+     */
+    private CommitInfo upcoming;
+
+    /**
+     * LogWalker constructor.
+     *
+     * @param start String
+     */
+    LogWalker(String start) {
+        upcoming = CommitInfo.load(start);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return upcoming != null;
+    }
+
+    @Override
+    public CommitInfo next() {
+        if (upcoming == null) {
+            throw new NoSuchElementException();
+        }
+        CommitInfo result = upcoming;
+        upcoming = Shallow.isGrafted(result.getID()) ? null
+                : CommitInfo.load(result.getParent());
+        return result;
+    }
+
+}
@@ -0,0 +1,207 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Object store keeping one file per object under a directory, in the
+ * fan-out layout described by ObjectLayout.
+ *
+ * Objects are written to a temporary file and renamed into place, so
+ * a reader or a crash never sees half an object and several threads
+ * may store the same object at once. Written objects are not flushed
+ * to disk one by one; sync flushes them all, and their directories,
+ * in a single barrier.
+ *
+ * @author Tony Hsu
+ */
+class LooseObjectStore implements ObjectStore {
+
+    /**
+     * object directory.
+     */
+    private String directory;
+    /**
+     * objects written since the last sync.
+     */
+    private Queue<File> unsynced = new ConcurrentLinkedQueue<>();
+
+    /**
+     * LooseObjectStore constructor.
+     *
+     * @param dir String
+     */
+    LooseObjectStore(String dir) {
+        directory = dir;
+    }
+
+    /**
+     * Return the object directory.
+     *
+     * @return String
+     */
+    String getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public byte[] get(String id) {
+        File file = ObjectLayout.file(directory, id);
+        if (!file.isFile()) {
+            return null;
+        }
+        return Utils.readContents(file);
+    }
+
+    @Override
+    public InputStream open(String id) throws IOException {
+        return new FileInputStream(ObjectLayout.file(directory, id));
+    }
+
+    @Override
+    public void put(String id, byte[] data) {
+        File target = ObjectLayout.newFile(directory, id);
+        File tmp = temporary(target);
+        Utils.writeContents(tmp, data);
+        try {
+            install(tmp, target);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void putFile(String id, File source) throws IOException {
+        File target = ObjectLayout.newFile(directory, id);
+        File tmp = temporary(target);
+        Files.copy(source.toPath(), tmp.toPath(), REPLACE_EXISTING);
+        install(tmp, target);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        List<File> files = new ArrayList<>();
+        Set<File> dirs = new LinkedHashSet<>();
+        for (File file = unsynced.poll(); file != null;
+             file = unsynced.poll()) {
+            files.add(file);
+            dirs.add(file.getParentFile());
+        }
+        for (File dir : new ArrayList<>(dirs)) {
+            dirs.add(dir.getParentFile());
+        }
+        try {
+            files.parallelStream().forEach(file -> {
+                try {
+                    force(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (File dir : dirs) {
+            try {
+                force(dir);
+            } catch (IOException e) {
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Return a temporary file next to TARGET, private to this thread.
+     *
+     * @param target File
+     * @return File
+     */
+    private static File temporary(File target) {
+        return new File(target.getPath() + ".tmp"
+                + Thread.currentThread().getId());
+    }
+
+    /**
+     * Rename TMP to TARGET and remember to flush it.
+     *
+     * @param tmp    File
+     * @param target File
+     * @throws IOException if TMP cannot be renamed
+     */
+    private void install(File tmp, File target) throws IOException {
+        Files.move(tmp.toPath(), target.toPath(), REPLACE_EXISTING,
+                ATOMIC_MOVE);
+        unsynced.add(target);
+    }
+
+    /**
+     * Flush FILE, which may be a directory, to disk. Some systems
+     * cannot open directories, which is reported as an IOException.
+     *
+     * @param file File
+     * @throws IOException if FILE cannot be flushed
+     */
+    private static void force(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void copyTo(String id, File target) throws IOException {
+        Files.copy(ObjectLayout.file(directory, id).toPath(), target.toPath(),
+                REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return ObjectLayout.exists(directory, id);
+    }
+
+    @Override
+    public long size(String id) {
+        return ObjectLayout.file(directory, id).length();
+    }
+
+    @Override
+    public long lastModified(String id) {
+        return ObjectLayout.file(directory, id).lastModified();
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return ObjectLayout.file(directory, id).delete();
+    }
+
+    @Override
+    public List<String> idsWithPrefix(String prefix) {
+        return ObjectLayout.idsWithPrefix(directory, prefix);
+    }
+
+    /**
+     * Move objects stored in the old flat layout into fan-out
+     * directories. Returns the number of objects moved.
+     *
+     * @return int
+     */
+    int migrate() {
+        return ObjectLayout.migrate(directory);
+    }
+
+}
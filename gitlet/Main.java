@@ -1,13 +1,16 @@
 package gitlet;
 
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.io.File;
 import java.io.IOException;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
 
 /**
  * Driver class for Gitlet, the tiny version-control
@@ -20,6 +23,17 @@ public class Main {
      * Gitlet repository path.
      */
     private static final String GITLETREPO = ".gitlet/";
+    /**
+     * Commands that never change the repository. They run without
+     * taking the repository lock and do not save.
+     */
+    private static final Set<String> READ_ONLY = new HashSet<>(
+            Arrays.asList("log", "global-log", "status", "find", "watch",
+                    "reflog"));
+    /**
+     * SHA-1 of the control file as loaded, or null if there was none.
+     */
+    private static String loadedStamp;
 
 
     /**
@@ -36,14 +50,38 @@ public class Main {
         if (incorrectOperands(args)) {
             return;
         }
+        boolean readOnly = READ_ONLY.contains(args[0]);
+        RepoLock lock = null;
+        if (!readOnly && new File(GITLETREPO).isDirectory()) {
+            lock = RepoLock.acquire();
+        }
+        try {
+            execute(args[0], inputs, readOnly);
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Run COMMAND with operands INPUTS, saving the repository
+     * afterwards unless READONLY.
+     *
+     * @param command  String
+     * @param inputs   String[]
+     * @param readOnly boolean
+     */
+    private static void execute(String command, String[] inputs,
+                                boolean readOnly) {
         Git currentGit = loadGit();
-        if ((!args[0].equals("init")) && (currentGit == null)) {
+        if ((!command.equals("init")) && (currentGit == null)) {
             System.out.println("Not in an initialized Gitlet directory.");
             return;
         }
-        switch (args[0]) {
+        switch (command) {
         case "init":
-            currentGit = init();
+            currentGit = init(inputs);
             break;
         case "commit":
             currentGit.commit(inputs[0]);
@@ -55,7 +93,7 @@ public class Main {
             currentGit.remove(inputs[0]);
             break;
         case "log":
-            currentGit.printLog();
+            currentGit.printLog(inputs);
             break;
         case "global-log":
             currentGit.globalLog();
@@ -81,9 +119,72 @@ public class Main {
         case "merge":
             currentGit.merge(inputs[0]);
             break;
+        case "migrate-layout":
+            Git.migrateLayout();
+            break;
+        case "reindex":
+            currentGit.reindex();
+            break;
+        case "gc":
+            currentGit.gc(inputs);
+            break;
+        case "add-remote":
+            currentGit.addRemote(inputs[0], inputs[1]);
+            break;
+        case "rm-remote":
+            currentGit.rmRemote(inputs[0]);
+            break;
+        case "push":
+            currentGit.push(inputs[0], inputs[1]);
+            break;
+        case "fetch":
+            currentGit.fetch(inputs[0], inputs[1]);
+            break;
+        case "pull":
+            currentGit.pull(inputs[0], inputs[1]);
+            break;
+        case "watch":
+            watch(inputs);
+            break;
+        case "stash":
+            currentGit.stash(inputs);
+            break;
+        case "cherry-pick":
+            currentGit.cherryPick(inputs[0]);
+            break;
+        case "rebase":
+            currentGit.rebase(inputs[0]);
+            break;
+        case "blame":
+            currentGit.blame(inputs[0]);
+            break;
+        case "tag":
+            currentGit.tag(inputs);
+            break;
+        case "rm-tag":
+            currentGit.rmTag(inputs[0]);
+            break;
+        case "pack-refs":
+            currentGit.packRefs();
+            break;
+        case "reflog":
+            currentGit.reflog(inputs);
+            break;
         default:
         }
-        saveProgress(currentGit);
+        if (!readOnly) {
+            try {
+                Storage.sync();
+                if (saveProgress(currentGit)) {
+                    Reflog.flush(Reflog.DIR);
+                }
+                GlobalLog.flush();
+                UntrackedCache.save();
+            } catch (IOException e) {
+                System.out.println("Cannot write objects.");
+            }
+        }
+        Storage.closeMeta();
     }
 
     /**
@@ -100,7 +201,7 @@ public class Main {
         }
         switch (args[0]) {
         case "init":
-            return incorrectOperandsHelper2(inputs);
+            return incorrectOperandsHelper5(inputs);
         case "commit":
             return incorrectOperandsHelper3(inputs);
         case "add":
@@ -108,7 +209,7 @@ public class Main {
         case "rm":
             return incorrectOperandsHelper(inputs);
         case "log":
-            return incorrectOperandsHelper2(inputs);
+            return false;
         case "global-log":
             return incorrectOperandsHelper2(inputs);
         case "status":
@@ -125,6 +226,40 @@ public class Main {
             return incorrectOperandsHelper(inputs);
         case "merge":
             return incorrectOperandsHelper(inputs);
+        case "migrate-layout":
+            return incorrectOperandsHelper2(inputs);
+        case "reindex":
+            return incorrectOperandsHelper2(inputs);
+        case "gc":
+            return false;
+        case "add-remote":
+            return incorrectOperandsHelper6(inputs);
+        case "rm-remote":
+            return incorrectOperandsHelper(inputs);
+        case "push":
+            return incorrectOperandsHelper6(inputs);
+        case "fetch":
+            return incorrectOperandsHelper6(inputs);
+        case "pull":
+            return incorrectOperandsHelper6(inputs);
+        case "watch":
+            return incorrectOperandsHelper7(inputs);
+        case "stash":
+            return incorrectOperandsHelper8(inputs);
+        case "cherry-pick":
+            return incorrectOperandsHelper(inputs);
+        case "rebase":
+            return incorrectOperandsHelper(inputs);
+        case "blame":
+            return incorrectOperandsHelper(inputs);
+        case "tag":
+            return incorrectOperandsHelper9(inputs);
+        case "rm-tag":
+            return incorrectOperandsHelper(inputs);
+        case "pack-refs":
+            return incorrectOperandsHelper2(inputs);
+        case "reflog":
+            return incorrectOperandsHelper10(inputs);
         default:
             System.out.println("No command with that name exists.");
             return true;
@@ -197,6 +332,106 @@ public class Main {
         return false;
     }
 
+    /**
+     * Gitlet command check helper for init, which takes no operands
+     * or --from REPO, optionally followed by --depth N with N > 0.
+     * @param args String[]
+     * @return boolean
+     */
+    public static boolean incorrectOperandsHelper5(String[] args) {
+        boolean correct = args.length == 0
+                || args.length == 2 && args[0].equals("--from")
+                || args.length == 4 && args[0].equals("--from")
+                && args[2].equals("--depth")
+                && args[3].matches("[1-9]\\d{0,8}");
+        if (!correct) {
+            System.out.println("Incorrect operands.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gitlet command check helper for commands taking two operands.
+     * @param args String[]
+     * @return boolean
+     */
+    public static boolean incorrectOperandsHelper6(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Incorrect operands.");
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Gitlet command check helper for watch [SECONDS].
+     * @param args String[]
+     * @return boolean
+     */
+    public static boolean incorrectOperandsHelper7(String[] args) {
+        if (args.length > 1
+                || args.length == 1 && !args[0].matches("[1-9]\\d{0,8}")) {
+            System.out.println("Incorrect operands.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gitlet command check helper for stash [pop | list].
+     * @param args String[]
+     * @return boolean
+     */
+    public static boolean incorrectOperandsHelper8(String[] args) {
+        if (args.length > 1 || args.length == 1
+                && !args[0].equals("pop") && !args[0].equals("list")) {
+            System.out.println("Incorrect operands.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gitlet command check helper for tag [NAME [COMMIT]] and
+     * tag -a NAME MESSAGE [COMMIT].
+     * @param args String[]
+     * @return boolean
+     */
+    public static boolean incorrectOperandsHelper9(String[] args) {
+        boolean annotated = args.length > 0 && args[0].equals("-a");
+        if (annotated ? args.length < 3 || args.length > 4
+                : args.length > 2) {
+            System.out.println("Incorrect operands.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gitlet command check helper for reflog [-n N] [BRANCH].
+     * @param args String[]
+     * @return boolean
+     */
+    public static boolean incorrectOperandsHelper10(String[] args) {
+        int branches = 0;
+        for (int i = 0; i < args.length; i += 1) {
+            if (!args[i].equals("-n")) {
+                branches += 1;
+            } else if (i + 1 == args.length
+                    || !args[i + 1].matches("\\d{1,9}")) {
+                branches = 2;
+            } else {
+                i += 1;
+            }
+        }
+        if (branches > 1) {
+            System.out.println("Incorrect operands.");
+            return true;
+        }
+        return false;
+    }
 
     /**
      * Gitlet repository path.
@@ -204,39 +439,89 @@ public class Main {
      */
     public static Git loadGit() {
         Git result = null;
+        loadedStamp = null;
         File gitFile = new File(GITLETREPO + "mainControl.file");
         if (gitFile.exists()) {
             try {
-                ObjectInputStream inp =
-                        new ObjectInputStream(new FileInputStream(gitFile));
-                result = (Git) inp.readObject();
-                inp.close();
-            } catch (IOException e) {
+                byte[] data = Utils.readContents(gitFile);
+                result = Utils.deserialize(data, Git.class);
+                loadedStamp = Utils.sha1(data);
+            } catch (IllegalArgumentException e) {
                 System.out.println("IOException");
-            } catch (ClassNotFoundException e) {
-                System.out.println("ClassNotFoundException");
             }
         }
         return result;
     }
 
     /**
-     * Saving process for Git object.
+     * Saving process for Git object. Returns whether it was saved.
      * @param git Git
+     * @return boolean
      */
-    public static void saveProgress(Git git) {
+    public static boolean saveProgress(Git git) {
         if (git == null) {
-            return;
+            return false;
+        }
+        File gitFile = new File(GITLETREPO + "mainControl.file");
+        String current = gitFile.exists()
+                ? Utils.sha1(Utils.readContents(gitFile)) : null;
+        if (current != null && !current.equals(loadedStamp)) {
+            System.out.println("The repository was changed by another "
+                    + "process; no changes saved.");
+            return false;
         }
         try {
-            File gitFile = new File(GITLETREPO + "mainControl.file");
-            ObjectOutputStream out =
-                    new ObjectOutputStream(new FileOutputStream(gitFile));
-            out.writeObject(git);
-            out.close();
+            byte[] data = Utils.serialize(git);
+            File tmp = new File(GITLETREPO + "mainControl.file.tmp");
+            Utils.writeContents(tmp, data);
+            Files.move(tmp.toPath(), gitFile.toPath(),
+                    REPLACE_EXISTING, ATOMIC_MOVE);
+            loadedStamp = Utils.sha1(data);
+            return true;
         } catch (IOException e) {
             System.out.println("IOException");
+            return false;
+        }
+    }
+
+    /**
+     * Watch the working tree for changes until stopped, or for the
+     * number of seconds in INPUTS if given.
+     * @param inputs String[]
+     */
+    public static void watch(String[] inputs) {
+        long millis = inputs.length == 0 ? 0
+                : Long.parseLong(inputs[0]) * 1000;
+        if (DirtyTracker.watching()) {
+            System.out.println("The working tree is already being watched.");
+            return;
+        }
+        try {
+            new Watcher().run(millis);
+        } catch (IOException e) {
+            System.out.println("Cannot watch the working tree.");
+        }
+    }
+
+    /**
+     * Initializes Git object, copying the repository named by
+     * --from in INPUTS if there is one.
+     * @param inputs String[]
+     * @return Git
+     */
+    public static Git init(String[] inputs) {
+        if (inputs.length == 0) {
+            return init();
+        }
+        if (new File(".gitlet").exists()) {
+            System.out.println("A Gitlet version-control "
+                    + "system already exists in"
+                    + "the current directory.");
+            return null;
         }
+        int depth = inputs.length == 4 ? Integer.parseInt(inputs[3])
+                : Integer.MAX_VALUE;
+        return Git.initFrom(inputs[1], depth);
     }
 
     /**
@@ -253,6 +538,7 @@ public class Main {
         } else {
             cur.mkdirs();
         }
+        Storage.enableMeta();
         Commit first = new Commit("initial commit", new Date(0), null);
         Git main = Git.gitInit(first);
         main.initMes2ID();
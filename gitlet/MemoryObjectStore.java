@@ -0,0 +1,92 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Object store kept entirely in memory, for tests and benchmarks.
+ *
+ * @author Tony Hsu
+ */
+class MemoryObjectStore implements ObjectStore {
+
+    /**
+     * stored objects by ID.
+     */
+    private ConcurrentSkipListMap<String, byte[]> objects =
+            new ConcurrentSkipListMap<>();
+    /**
+     * write times of stored objects by ID.
+     */
+    private ConcurrentHashMap<String, Long> written =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] get(String id) {
+        return objects.get(id);
+    }
+
+    @Override
+    public InputStream open(String id) throws FileNotFoundException {
+        byte[] data = objects.get(id);
+        if (data == null) {
+            throw new FileNotFoundException(id);
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public void put(String id, byte[] data) {
+        objects.put(id, data);
+        written.put(id, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return objects.containsKey(id);
+    }
+
+    @Override
+    public long size(String id) {
+        byte[] data = objects.get(id);
+        return data == null ? 0 : data.length;
+    }
+
+    @Override
+    public long lastModified(String id) {
+        return written.getOrDefault(id, 0L);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        written.remove(id);
+        return objects.remove(id) != null;
+    }
+
+    @Override
+    public List<String> idsWithPrefix(String prefix) {
+        ArrayList<String> result = new ArrayList<>();
+        for (String id : objects.tailMap(prefix).keySet()) {
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of stored objects.
+     *
+     * @return int
+     */
+    int size() {
+        return objects.size();
+    }
+
+}
@@ -0,0 +1,411 @@
+package gitlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Best common ancestors of two commits over both parents of every
+ * commit. Commits are visited newest generation first, where the
+ * generation of a commit is one more than the largest generation of
+ * its parents, so an ancestor is never reached before its
+ * descendants. Each commit is painted with the side or sides it is
+ * reachable from; a commit reachable from both is a candidate base and
+ * everything below it is stale, and the walk stops once only stale
+ * commits are left. Candidates that are ancestors of other candidates
+ * are then dropped, so what remains are the merge bases.
+ *
+ * After criss-cross merges there can be several bases. Merging then
+ * uses a virtual base: the bases are merged together in turn, with
+ * their own merge bases found the same way, and conflicts are kept as
+ * conflict blobs.
+ *
+ * Generation numbers and the bases of each pair of commits are
+ * remembered, and kept in the metadata index of the current
+ * repository when it has one.
+ *
+ * @author Tony Hsu
+ */
+class MergeBase {
+
+    /**
+     * The parents of the commits of a history.
+     */
+    interface Graph {
+        /**
+         * Return the parents of commit ID.
+         *
+         * @param id String
+         * @return List
+         */
+        List<String> parents(String id);
+    }
+
+    /**
+     * mark of commits reachable from the first commit.
+     */
+    private static final int FIRST = 1;
+    /**
+     * mark of commits reachable from the second commit.
+     */
+    private static final int SECOND = 2;
+    /**
+     * mark of commits below a common ancestor.
+     */
+    private static final int STALE = 4;
+    /**
+     * mark of commits found to be common ancestors.
+     */
+    private static final int RESULT = 8;
+
+    /**
+     * merge bases of the current repository, once used.
+     */
+    private static MergeBase current;
+
+    /**
+     * the history searched.
+     */
+    private Graph graph;
+    /**
+     * whether to keep results in the current metadata index.
+     */
+    private boolean persistent;
+    /**
+     * generation numbers computed or read so far.
+     */
+    private HashMap<String, Integer> generations = new HashMap<>();
+    /**
+     * merge bases found so far, by pair.
+     */
+    private HashMap<String, List<String>> cache = new HashMap<>();
+
+    /**
+     * MergeBase constructor over GRAPH, keeping results in the
+     * current metadata index if PERSISTENT.
+     *
+     * @param g          Graph
+     * @param persistent boolean
+     */
+    MergeBase(Graph g, boolean persistent) {
+        graph = g;
+        this.persistent = persistent;
+    }
+
+    /**
+     * Return the merge bases of the current repository, whose shallow
+     * boundary is respected.
+     *
+     * @return MergeBase
+     */
+    static synchronized MergeBase current() {
+        if (current == null) {
+            current = new MergeBase(MergeBase::repositoryParents, true);
+        }
+        return current;
+    }
+
+    /**
+     * Forget what is known about the current repository, as when
+     * changing repositories.
+     */
+    static synchronized void reset() {
+        current = null;
+    }
+
+    /**
+     * Return the parents of commit ID in the current repository.
+     *
+     * @param id String
+     * @return List
+     */
+    private static List<String> repositoryParents(String id) {
+        List<String> result = new ArrayList<>();
+        CommitInfo info = Shallow.isGrafted(id) ? null : CommitInfo.load(id);
+        if (info == null) {
+            return result;
+        }
+        for (String parent : new String[] {info.getParent(),
+            info.getMergeParent()}) {
+            if (parent != null) {
+                result.add(parent);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the generation number of commit ID: 1 for a root, else
+     * one more than the largest of its parents.
+     *
+     * @param id String
+     * @return int
+     */
+    synchronized int generation(String id) {
+        Integer known = knownGeneration(id);
+        if (known != null) {
+            return known;
+        }
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(id);
+        while (!stack.isEmpty()) {
+            String top = stack.peek();
+            if (knownGeneration(top) != null) {
+                stack.pop();
+                continue;
+            }
+            int max = 0;
+            boolean ready = true;
+            for (String parent : graph.parents(top)) {
+                Integer gen = knownGeneration(parent);
+                if (gen == null) {
+                    stack.push(parent);
+                    ready = false;
+                } else {
+                    max = Math.max(max, gen);
+                }
+            }
+            if (ready) {
+                stack.pop();
+                generations.put(top, max + 1);
+                MetaIndex meta = meta();
+                if (meta != null) {
+                    meta.recordGeneration(top, max + 1);
+                }
+            }
+        }
+        return generations.get(id);
+    }
+
+    /**
+     * Return the generation number of commit ID if it is known.
+     *
+     * @param id String
+     * @return Integer
+     */
+    private Integer knownGeneration(String id) {
+        Integer result = generations.get(id);
+        MetaIndex meta = meta();
+        if (result == null && meta != null) {
+            result = meta.generation(id);
+            if (result != null) {
+                generations.put(id, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the merge bases of commits A and B, highest generation
+     * first, or none if they have no common ancestor.
+     *
+     * @param a String
+     * @param b String
+     * @return List
+     */
+    synchronized List<String> bases(String a, String b) {
+        String pair = a.compareTo(b) < 0 ? a + " " + b : b + " " + a;
+        List<String> result = cache.get(pair);
+        MetaIndex meta = meta();
+        if (result == null && meta != null) {
+            result = meta.bases(pair);
+        }
+        if (result == null) {
+            result = removeRedundant(paint(a, b));
+            if (meta != null) {
+                meta.recordBases(pair, result);
+            }
+        }
+        cache.put(pair, result);
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Return the common ancestors of A and B reached before they go
+     * stale, which include all merge bases.
+     *
+     * @param a String
+     * @param b String
+     * @return List
+     */
+    private List<String> paint(String a, String b) {
+        List<String> result = new ArrayList<>();
+        if (a.equals(b)) {
+            result.add(a);
+            return result;
+        }
+        HashMap<String, Integer> marks = new HashMap<>();
+        TreeSet<String> queue = new TreeSet<>(order());
+        int[] fresh = {0};
+        mark(a, FIRST, marks, queue, fresh);
+        mark(b, SECOND, marks, queue, fresh);
+        while (fresh[0] > 0) {
+            String cur = queue.pollFirst();
+            int flags = marks.get(cur);
+            if ((flags & STALE) == 0) {
+                fresh[0] -= 1;
+            }
+            flags &= FIRST | SECOND | STALE;
+            if ((flags & (FIRST | SECOND)) == (FIRST | SECOND)) {
+                if ((marks.get(cur) & RESULT) == 0) {
+                    marks.put(cur, marks.get(cur) | RESULT);
+                    result.add(cur);
+                }
+                flags |= STALE;
+            }
+            for (String parent : graph.parents(cur)) {
+                mark(parent, flags, marks, queue, fresh);
+            }
+        }
+        result.removeIf(id -> (marks.get(id) & STALE) != 0);
+        return result;
+    }
+
+    /**
+     * Add FLAGS to the marks of commit ID in MARKS and queue it in
+     * QUEUE if that adds any, keeping FRESH[0] the number of queued
+     * commits that are not stale.
+     *
+     * @param id    String
+     * @param flags int
+     * @param marks Map
+     * @param queue TreeSet
+     * @param fresh int[]
+     */
+    private void mark(String id, int flags, Map<String, Integer> marks,
+                      TreeSet<String> queue, int[] fresh) {
+        int old = marks.getOrDefault(id, 0);
+        if ((old & flags) == flags) {
+            return;
+        }
+        generation(id);
+        boolean queued = queue.contains(id);
+        if (queued && (old & STALE) == 0) {
+            fresh[0] -= 1;
+        }
+        marks.put(id, old | flags);
+        if (!queued) {
+            queue.add(id);
+        }
+        if (((old | flags) & STALE) == 0) {
+            fresh[0] += 1;
+        }
+    }
+
+    /**
+     * Return CANDIDATES without those that are ancestors of others,
+     * highest generation first.
+     *
+     * @param candidates List
+     * @return List
+     */
+    private List<String> removeRedundant(List<String> candidates) {
+        List<String> sorted = new ArrayList<>(candidates);
+        sorted.sort(order());
+        List<String> result = new ArrayList<>();
+        for (String id : sorted) {
+            boolean redundant = false;
+            for (String kept : result) {
+                if (isAncestor(id, kept)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return whether commit ANCESTOR is DESCENDANT or one of its
+     * ancestors. Commits of lower generation than ANCESTOR are not
+     * searched, since it cannot be among their ancestors.
+     *
+     * @param ancestor   String
+     * @param descendant String
+     * @return boolean
+     */
+    synchronized boolean isAncestor(String ancestor, String descendant) {
+        int floor = generation(ancestor);
+        HashSet<String> seen = new HashSet<>();
+        ArrayDeque<String> frontier = new ArrayDeque<>();
+        frontier.push(descendant);
+        while (!frontier.isEmpty()) {
+            String id = frontier.pop();
+            if (id.equals(ancestor)) {
+                return true;
+            }
+            if (seen.add(id) && generation(id) > floor) {
+                for (String parent : graph.parents(id)) {
+                    frontier.push(parent);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the files of the merge base of BASES, a result of bases:
+     * the files of the only base, or of the virtual base made by
+     * merging all of them.
+     *
+     * @param bases List
+     * @return PathTable
+     */
+    synchronized PathTable baseTable(List<String> bases) {
+        PathTable result = table(bases.get(0));
+        List<String> merged = new ArrayList<>();
+        merged.add(bases.get(0));
+        for (String next : bases.subList(1, bases.size())) {
+            List<String> inner = new ArrayList<>();
+            for (String done : merged) {
+                inner.addAll(bases(done, next));
+            }
+            inner = removeRedundant(new ArrayList<>(new HashSet<>(inner)));
+            PathTable innerTable = inner.isEmpty()
+                    ? PathTable.of(new HashMap<>()) : baseTable(inner);
+            result = PathTable.of(MergeClassifier.merge(innerTable,
+                    result, table(next), null));
+            merged.add(next);
+        }
+        return result;
+    }
+
+    /**
+     * Return the files of commit ID.
+     *
+     * @param id String
+     * @return PathTable
+     */
+    private static PathTable table(String id) {
+        return Git.deserializeCommit(id).getPathTable();
+    }
+
+    /**
+     * Return the order of commits by generation, highest first, then
+     * by ID.
+     *
+     * @return Comparator
+     */
+    private Comparator<String> order() {
+        return Comparator.comparing((String id) -> -generation(id))
+                .thenComparing(Comparator.naturalOrder());
+    }
+
+    /**
+     * Return the metadata index to keep results in, or null.
+     *
+     * @return MetaIndex
+     */
+    private MetaIndex meta() {
+        return persistent ? Storage.meta() : null;
+    }
+
+}
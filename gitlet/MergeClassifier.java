@@ -0,0 +1,165 @@
+package gitlet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Planning phase of a merge. Walks the files of the split point, the
+ * current head and the given head side by side in path order, in a
+ * single merge-join over their PathTables, and records in a Stages
+ * object what MergeExecutor must do with each file: keep, check out,
+ * untrack, or resolve as a conflict. Blob IDs are compared as raw
+ * bytes, and a file unchanged on all three sides is settled by that
+ * comparison alone.
+ *
+ * @author Tony Hsu
+ */
+class MergeClassifier {
+
+    /**
+     * index of the split point in a join.
+     */
+    private static final int SPLIT = 0;
+    /**
+     * index of the current head in a join.
+     */
+    private static final int CURRENT = 1;
+    /**
+     * index of the given head in a join.
+     */
+    private static final int GIVEN = 2;
+
+    /**
+     * Plan the merge of GIVEN into CURRENT with split point SPLIT into
+     * PLAN, whose merge fields must be initialized. Returns whether
+     * any file conflicts.
+     *
+     * @param split   PathTable
+     * @param current PathTable
+     * @param given   PathTable
+     * @param plan    Stages
+     * @return boolean
+     */
+    static boolean classify(PathTable split, PathTable current,
+                            PathTable given, Stages plan) {
+        PathTable[] tables = {split, current, given};
+        boolean[] conflict = {false};
+        PathTable.join(tables, (name, at) -> {
+            int s = at[SPLIT];
+            int c = at[CURRENT];
+            int g = at[GIVEN];
+            if (s >= 0) {
+                conflict[0] |= classifySplit(tables, name, s, c, g, plan);
+            } else if (c >= 0 && g >= 0) {
+                if (current.sameID(c, given, g)) {
+                    plan.getStagedFiles().put(name, given.id(g));
+                } else {
+                    conflicting(tables, name, c, g, plan);
+                    conflict[0] = true;
+                }
+            } else if (c >= 0) {
+                plan.getStagedFiles().put(name, current.id(c));
+            } else {
+                String givenID = given.id(g);
+                plan.getStagedFiles().put(name, givenID);
+                plan.getMergeCheckOutFiles().put(name, givenID);
+            }
+        });
+        return conflict[0];
+    }
+
+    /**
+     * Return the files of merging GIVEN into CURRENT with split point
+     * SPLIT, computed without touching the working directory, with
+     * each conflicting file as a conflict blob. Conflicting paths are
+     * added to CONFLICTS unless it is null.
+     *
+     * @param split     PathTable
+     * @param current   PathTable
+     * @param given     PathTable
+     * @param conflicts Set
+     * @return HashMap
+     */
+    static HashMap<String, String> merge(PathTable split, PathTable current,
+                                         PathTable given,
+                                         Set<String> conflicts) {
+        Stages plan = new Stages(null);
+        plan.initMerge();
+        classify(split, current, given, plan);
+        HashMap<String, String> files = new HashMap<>(plan.getStagedFiles());
+        for (Map.Entry<String, String[]> conflict
+                : plan.getMergeConflicts().entrySet()) {
+            String[] ids = conflict.getValue();
+            files.put(conflict.getKey(),
+                    MergeExecutor.conflictBlob(ids[0], ids[1]));
+            if (conflicts != null) {
+                conflicts.add(conflict.getKey());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Plan file NAME, present at index S of the split point and at
+     * indices C and G, or -1, of the current and given heads in
+     * TABLES. Returns whether it conflicts.
+     *
+     * @param tables PathTable[]
+     * @param name   String
+     * @param s      int
+     * @param c      int
+     * @param g      int
+     * @param plan   Stages
+     * @return boolean
+     */
+    private static boolean classifySplit(PathTable[] tables, String name,
+                                         int s, int c, int g,
+                                         Stages plan) {
+        PathTable split = tables[SPLIT];
+        boolean curSame = split.sameID(s, tables[CURRENT], c);
+        boolean givenSame = split.sameID(s, tables[GIVEN], g);
+        if (c >= 0 && g >= 0) {
+            if (givenSame || tables[CURRENT].sameID(c, tables[GIVEN], g)) {
+                plan.getStagedFiles().put(name, tables[CURRENT].id(c));
+            } else if (curSame) {
+                String givenID = tables[GIVEN].id(g);
+                plan.getStagedFiles().put(name, givenID);
+                plan.getMergeCheckOutFiles().put(name, givenID);
+            } else {
+                conflicting(tables, name, c, g, plan);
+                return true;
+            }
+        } else if (c >= 0) {
+            if (curSame) {
+                plan.getRemovingFiles().add(name);
+            } else {
+                conflicting(tables, name, c, g, plan);
+                return true;
+            }
+        } else if (g >= 0 && !givenSame) {
+            conflicting(tables, name, c, g, plan);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record NAME as a conflict between index C of the current head
+     * and index G of the given head in TABLES, either of which may be
+     * -1 for a deleted file.
+     *
+     * @param tables PathTable[]
+     * @param name   String
+     * @param c      int
+     * @param g      int
+     * @param plan   Stages
+     */
+    private static void conflicting(PathTable[] tables, String name,
+                                    int c, int g, Stages plan) {
+        plan.getMergeConflicts().put(name, new String[] {
+            c < 0 ? null : tables[CURRENT].id(c),
+            g < 0 ? null : tables[GIVEN].id(g)});
+    }
+
+}
@@ -0,0 +1,251 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Execution phase of a merge. Takes the plan recorded in a Stages
+ * object by MergeClassifier, prefetches every blob the
+ * conflicts need exactly once, builds the conflict files concurrently
+ * and writes the working directory in parallel. Results are applied
+ * to the stage in file name order, so the outcome does not depend on
+ * thread scheduling.
+ *
+ * @author Tony Hsu
+ */
+public class MergeExecutor {
+
+    /**
+     * header of a conflict file.
+     */
+    private static final String HEAD = "<<<<<<< HEAD\n";
+    /**
+     * separator of a conflict file.
+     */
+    private static final String SEPARATOR = "=======\n";
+    /**
+     * tail of a conflict file.
+     */
+    private static final String TAIL = ">>>>>>>\n";
+
+    /**
+     * blob store.
+     */
+    private ObjectStore blobs;
+
+    /**
+     * MergeExecutor constructor.
+     *
+     * @param store ObjectStore
+     */
+    MergeExecutor(ObjectStore store) {
+        blobs = store;
+    }
+
+    /**
+     * Resolve the conflicts of PLAN and restore its checkout files.
+     * Return false, before touching the working directory, if the
+     * conflicts cannot be resolved.
+     *
+     * @param plan Stages
+     * @return boolean
+     */
+    public boolean execute(Stages plan) {
+        int threads = Math.max(1, Math.min(
+                Runtime.getRuntime().availableProcessors(),
+                plan.getMergeConflicts().size()
+                        + plan.getMergeCheckOutFiles().size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            if (!resolveConflicts(plan, pool)) {
+                return false;
+            }
+            restoreFiles(plan.getMergeCheckOutFiles(), pool);
+            return true;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Read every blob the conflicts refer to, then build and store
+     * the conflict blobs. Return false, having changed nothing, if a
+     * blob cannot be read or a conflict blob cannot be stored.
+     *
+     * @param plan Stages
+     * @param pool ExecutorService
+     * @return boolean
+     */
+    private boolean resolveConflicts(Stages plan, ExecutorService pool) {
+        TreeMap<String, String[]> conflicts = plan.getMergeConflicts();
+        if (conflicts.isEmpty()) {
+            return true;
+        }
+        TreeSet<String> needed = new TreeSet<>();
+        for (String[] ids : conflicts.values()) {
+            for (String id : ids) {
+                if (id != null) {
+                    needed.add(id);
+                }
+            }
+        }
+        Map<String, String> contents = new ConcurrentHashMap<>();
+        List<Callable<Void>> reads = new ArrayList<>();
+        for (String id : needed) {
+            reads.add(() -> {
+                byte[] data = Blobs.read(id);
+                if (data == null) {
+                    throw new FileNotFoundException(id);
+                }
+                contents.put(id, new String(data, StandardCharsets.UTF_8));
+                return null;
+            });
+        }
+        if (runAll(pool, reads) > 0) {
+            System.out.println("Could not read file.");
+            return false;
+        }
+
+        TreeMap<String, String> merged = new TreeMap<>();
+        TreeMap<String, String> results = new TreeMap<>();
+        for (Map.Entry<String, String[]> e : conflicts.entrySet()) {
+            String first = content(contents, e.getValue()[0]);
+            String second = content(contents, e.getValue()[1]);
+            String sha1 = Utils.sha1(first, second);
+            merged.put(sha1, conflict(first, second));
+            results.put(e.getKey(), sha1);
+        }
+        List<Callable<Void>> writes = new ArrayList<>();
+        for (Map.Entry<String, String> e : merged.entrySet()) {
+            writes.add(() -> {
+                blobs.put(e.getKey(),
+                        e.getValue().getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+        }
+        if (runAll(pool, writes) > 0) {
+            System.out.println("Cannot write objects.");
+            return false;
+        }
+
+        for (Map.Entry<String, String> e : results.entrySet()) {
+            plan.getStagedFiles().put(e.getKey(), e.getValue());
+            plan.getMergeCheckOutFiles().put(e.getKey(), e.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Return the ID of the conflict blob between blobs CURID and
+     * GIVENID, either of which may be null for a deleted file, and
+     * store it if it is new. Used for virtual merge bases.
+     *
+     * @param curID   String
+     * @param givenID String
+     * @return String
+     */
+    static String conflictBlob(String curID, String givenID) {
+        String first = curID == null ? ""
+                : new String(Blobs.read(curID), StandardCharsets.UTF_8);
+        String second = givenID == null ? ""
+                : new String(Blobs.read(givenID), StandardCharsets.UTF_8);
+        String sha1 = Utils.sha1(first, second);
+        if (!Storage.blobs().exists(sha1)) {
+            Storage.blobs().put(sha1, conflict(first, second)
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return sha1;
+    }
+
+    /**
+     * Return the contents of a conflict between FIRST and SECOND.
+     *
+     * @param first  String
+     * @param second String
+     * @return String
+     */
+    private static String conflict(String first, String second) {
+        return HEAD + first + SEPARATOR + second + TAIL;
+    }
+
+    /**
+     * Copy the blobs in FILES to the working directory.
+     *
+     * @param files TreeMap
+     * @param pool  ExecutorService
+     */
+    private void restoreFiles(TreeMap<String, String> files,
+                              ExecutorService pool) {
+        List<Callable<Void>> copies = new ArrayList<>();
+        for (Map.Entry<String, String> e : files.entrySet()) {
+            copies.add(() -> {
+                Blobs.restore(e.getValue(), new File(e.getKey()));
+                return null;
+            });
+        }
+        int failures = runAll(pool, copies);
+        for (int i = 0; i < failures; i += 1) {
+            System.out.println("Could not restore file.");
+        }
+    }
+
+    /**
+     * Return the contents of blob ID, or the empty string for a
+     * missing side of a conflict.
+     *
+     * @param contents Map
+     * @param id       String
+     * @return String
+     */
+    private static String content(Map<String, String> contents, String id) {
+        if (id == null) {
+            return "";
+        }
+        return contents.get(id);
+    }
+
+    /**
+     * Run TASKS on POOL and wait for all of them. Returns the number
+     * of tasks that failed with an IOException; any other failure is
+     * rethrown.
+     *
+     * @param pool  ExecutorService
+     * @param tasks List
+     * @return int
+     */
+    private static int runAll(ExecutorService pool,
+                              List<Callable<Void>> tasks) {
+        int failures = 0;
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof IOException)) {
+                        throw Utils.error("merge failed: %s",
+                                e.getCause().getMessage());
+                    }
+                    failures += 1;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Utils.error("merge interrupted");
+        }
+        return failures;
+    }
+
+}
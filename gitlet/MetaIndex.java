@@ -0,0 +1,316 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Commit metadata kept in a single KVStore, so that resolving
+ * abbreviated IDs, walking the log and finding commits by message are
+ * indexed reads instead of directory listings and full commit
+ * deserialization. Keys are
+ * c/ID -> parent, merge parent, time and message of commit ID,
+ * m/MESSAGE NUL ID -> "" for every commit with that message, and
+ * p/ID -> Bloom filter of the paths commit ID changed,
+ * g/ID -> generation number of commit ID,
+ * b/ID1 ID2 -> merge bases of commits ID1 and ID2, ID1 < ID2,
+ * l/ID -> "" for every chunked blob, and
+ * a/ID NUL PATH -> the commits blamed for the lines of PATH in commit
+ * ID, as runs of an ID and a count of lines.
+ *
+ * @author Tony Hsu
+ */
+class MetaIndex {
+
+    /**
+     * base name of the store files.
+     */
+    static final String BASE = ".gitlet/meta";
+    /**
+     * prefix of commit records.
+     */
+    private static final String COMMIT = "c/";
+    /**
+     * prefix of message records.
+     */
+    private static final String MESSAGE = "m/";
+    /**
+     * prefix of changed-path filter records.
+     */
+    private static final String PATHS = "p/";
+    /**
+     * prefix of generation number records.
+     */
+    private static final String GENERATION = "g/";
+    /**
+     * prefix of merge base records.
+     */
+    private static final String BASES = "b/";
+    /**
+     * prefix of chunked blob records.
+     */
+    private static final String LARGE = "l/";
+    /**
+     * prefix of blame records.
+     */
+    private static final String BLAME = "a/";
+    /**
+     * separator between a message and an ID.
+     */
+    private static final String SEP = "\0";
+
+    /**
+     * underlying store.
+     */
+    private KVStore store;
+
+    /**
+     * MetaIndex constructor.
+     *
+     * @param base String
+     */
+    MetaIndex(String base) {
+        store = new KVStore(base);
+    }
+
+    /**
+     * Record the metadata of CUR.
+     *
+     * @param cur Commit
+     */
+    void recordCommit(Commit cur) {
+        String parent = cur.getParent() == null ? "" : cur.getParent();
+        String merge = cur.getMergeParent() == null ? ""
+                : cur.getMergeParent();
+        store.put(COMMIT + cur.getSHA1ID(), parent + "\n" + merge + "\n"
+                + cur.getTime().getTime() + "\n" + cur.getMessage());
+        store.put(MESSAGE + cur.getMessage() + SEP + cur.getSHA1ID(), "");
+        store.put(PATHS + cur.getSHA1ID(), PathFilter.of(cur).toString());
+    }
+
+    /**
+     * Forget commit ID.
+     *
+     * @param id String
+     */
+    void removeCommit(String id) {
+        String[] fields = info(id);
+        if (fields == null) {
+            return;
+        }
+        store.delete(COMMIT + id);
+        store.delete(MESSAGE + fields[3] + SEP + id);
+        store.delete(PATHS + id);
+        store.delete(GENERATION + id);
+        for (String key : store.scan(BLAME + id + SEP).keySet()) {
+            store.delete(key);
+        }
+    }
+
+    /**
+     * Return whether commit ID is recorded.
+     *
+     * @param id String
+     * @return boolean
+     */
+    boolean hasCommit(String id) {
+        return store.get(COMMIT + id) != null;
+    }
+
+    /**
+     * Return the first recorded commit ID starting with PREFIX, or null.
+     *
+     * @param prefix String
+     * @return String
+     */
+    String resolve(String prefix) {
+        SortedMap<String, String> found = store.scan(COMMIT + prefix, 1);
+        if (found.isEmpty()) {
+            return null;
+        }
+        return found.firstKey().substring(COMMIT.length());
+    }
+
+    /**
+     * Return the metadata of commit ID as parent, merge parent, time
+     * and message, with null for absent parents, or null if ID is not
+     * recorded.
+     *
+     * @param id String
+     * @return String[]
+     */
+    String[] info(String id) {
+        String value = store.get(COMMIT + id);
+        if (value == null) {
+            return null;
+        }
+        String[] fields = value.split("\n", 4);
+        for (int i = 0; i < 2; i += 1) {
+            if (fields[i].isEmpty()) {
+                fields[i] = null;
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Return the changed-path filter of commit ID, or null if it has
+     * none recorded.
+     *
+     * @param id String
+     * @return PathFilter
+     */
+    PathFilter pathFilter(String id) {
+        String value = store.get(PATHS + id);
+        return value == null ? null : PathFilter.parse(value);
+    }
+
+    /**
+     * Return the recorded generation number of commit ID, or null.
+     *
+     * @param id String
+     * @return Integer
+     */
+    Integer generation(String id) {
+        String value = store.get(GENERATION + id);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * Record that commit ID has generation number GENERATION.
+     *
+     * @param id         String
+     * @param generation int
+     */
+    void recordGeneration(String id, int generation) {
+        store.put(GENERATION + id, Integer.toString(generation));
+    }
+
+    /**
+     * Return the recorded merge bases of commits PAIR, a pair of IDs
+     * separated by a space, or null.
+     *
+     * @param pair String
+     * @return List
+     */
+    List<String> bases(String pair) {
+        String value = store.get(BASES + pair);
+        if (value == null) {
+            return null;
+        }
+        ArrayList<String> result = new ArrayList<>();
+        for (String id : value.split(" ")) {
+            if (!id.isEmpty()) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record BASES as the merge bases of commits PAIR.
+     *
+     * @param pair  String
+     * @param bases List
+     */
+    void recordBases(String pair, List<String> bases) {
+        store.put(BASES + pair, String.join(" ", bases));
+    }
+
+    /**
+     * Return the recorded commits blamed for each line of file PATH in
+     * commit ID, or null.
+     *
+     * @param id   String
+     * @param path String
+     * @return String[]
+     */
+    String[] blame(String id, String path) {
+        String value = store.get(BLAME + id + SEP + path);
+        if (value == null) {
+            return null;
+        }
+        ArrayList<String> result = new ArrayList<>();
+        String[] runs = value.split(" ");
+        for (int i = 0; i + 1 < runs.length; i += 2) {
+            for (int n = Integer.parseInt(runs[i + 1]); n > 0; n -= 1) {
+                result.add(runs[i]);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Record COMMITS as the commits blamed for each line of file PATH
+     * in commit ID.
+     *
+     * @param id      String
+     * @param path    String
+     * @param commits String[]
+     */
+    void recordBlame(String id, String path, String[] commits) {
+        StringBuilder runs = new StringBuilder();
+        for (int i = 0, j; i < commits.length; i = j) {
+            for (j = i; j < commits.length && commits[j].equals(commits[i]);
+                 j += 1) {
+                continue;
+            }
+            runs.append(commits[i]).append(' ').append(j - i).append(' ');
+        }
+        store.put(BLAME + id + SEP + path, runs.toString());
+    }
+
+    /**
+     * Return the IDs of all commits whose message is MESSAGE.
+     *
+     * @param message String
+     * @return List
+     */
+    List<String> find(String message) {
+        String prefix = MESSAGE + message + SEP;
+        ArrayList<String> result = new ArrayList<>();
+        for (String key : store.scan(prefix).keySet()) {
+            result.add(key.substring(prefix.length()));
+        }
+        return result;
+    }
+
+    /**
+     * Record that blob ID is a chunk manifest.
+     *
+     * @param id String
+     */
+    void recordManifest(String id) {
+        store.put(LARGE + id, "");
+    }
+
+    /**
+     * Forget chunk manifest ID.
+     *
+     * @param id String
+     */
+    void removeManifest(String id) {
+        store.delete(LARGE + id);
+    }
+
+    /**
+     * Return the IDs of all chunk manifests.
+     *
+     * @return List
+     */
+    List<String> manifests() {
+        ArrayList<String> result = new ArrayList<>();
+        for (String key : store.scan(LARGE).keySet()) {
+            result.add(key.substring(LARGE.length()));
+        }
+        return result;
+    }
+
+    /**
+     * Flush and close the index.
+     */
+    void close() {
+        store.close();
+    }
+
+}
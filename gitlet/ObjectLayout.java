@@ -0,0 +1,171 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * On-disk layout of loose objects. New objects are fanned out into
+ * subdirectories named after the first two hex digits of their ID
+ * (ab/cdef...), so no directory grows past a few thousand entries.
+ * Objects written by older versions directly in the object directory
+ * are still found, and can be moved with migrate.
+ *
+ * @author Tony Hsu
+ */
+class ObjectLayout {
+
+    /**
+     * number of ID characters used to name a fan-out directory.
+     */
+    static final int FANOUT = 2;
+
+    /**
+     * Return the file holding object ID in DIR, looking in the flat
+     * layout when the object has not been migrated. For objects that
+     * do not exist yet, return the fan-out location.
+     *
+     * @param dir String
+     * @param id  String
+     * @return File
+     */
+    static File file(String dir, String id) {
+        File sharded = sharded(dir, id);
+        if (sharded.exists()) {
+            return sharded;
+        }
+        File flat = new File(dir, id);
+        if (flat.isFile()) {
+            return flat;
+        }
+        return sharded;
+    }
+
+    /**
+     * Return the fan-out location of object ID in DIR, creating its
+     * directory if needed.
+     *
+     * @param dir String
+     * @param id  String
+     * @return File
+     */
+    static File newFile(String dir, String id) {
+        File result = sharded(dir, id);
+        result.getParentFile().mkdirs();
+        return result;
+    }
+
+    /**
+     * Return whether object ID exists in DIR.
+     *
+     * @param dir String
+     * @param id  String
+     * @return boolean
+     */
+    static boolean exists(String dir, String id) {
+        return file(dir, id).isFile();
+    }
+
+    /**
+     * Return the sorted IDs of all objects in DIR starting with PREFIX.
+     * A prefix of at least two characters lists a single fan-out
+     * directory.
+     *
+     * @param dir    String
+     * @param prefix String
+     * @return List
+     */
+    static List<String> idsWithPrefix(String dir, String prefix) {
+        ArrayList<String> result = new ArrayList<>();
+        if (prefix.length() >= FANOUT) {
+            String shard = prefix.substring(0, FANOUT);
+            addShard(dir, shard, prefix, result);
+        } else {
+            String[] shards = new File(dir).list();
+            if (shards != null) {
+                for (String shard : shards) {
+                    if (shard.length() == FANOUT && shard.startsWith(prefix)
+                            && new File(dir, shard).isDirectory()) {
+                        addShard(dir, shard, prefix, result);
+                    }
+                }
+            }
+        }
+        List<String> flat = Utils.plainFilenamesIn(dir);
+        if (flat != null) {
+            for (String id : flat) {
+                if (id.startsWith(prefix)) {
+                    result.add(id);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Move every object of DIR stored in the flat layout into its
+     * fan-out directory. Returns the number of objects moved.
+     *
+     * @param dir String
+     * @return int
+     */
+    static int migrate(String dir) {
+        List<String> flat = Utils.plainFilenamesIn(dir);
+        if (flat == null) {
+            return 0;
+        }
+        int moved = 0;
+        for (String id : flat) {
+            if (id.length() != Utils.UID_LENGTH) {
+                continue;
+            }
+            File target = newFile(dir, id);
+            if (target.exists() || new File(dir, id).renameTo(target)) {
+                new File(dir, id).delete();
+                moved += 1;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Return the fan-out location of ID in DIR.
+     *
+     * @param dir String
+     * @param id  String
+     * @return File
+     */
+    private static File sharded(String dir, String id) {
+        if (id.length() <= FANOUT) {
+            return new File(dir, id);
+        }
+        return new File(new File(dir, id.substring(0, FANOUT)),
+                id.substring(FANOUT));
+    }
+
+    /**
+     * Add to RESULT the IDs in fan-out directory SHARD of DIR that
+     * start with PREFIX.
+     *
+     * @param dir    String
+     * @param shard  String
+     * @param prefix String
+     * @param result List
+     */
+    private static void addShard(String dir, String shard, String prefix,
+                                 List<String> result) {
+        String[] names = new File(dir, shard).list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            String id = shard + name;
+            if (id.startsWith(prefix)) {
+                result.add(id);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Content-addressed storage of one kind of object (blobs or commits),
+ * keyed by SHA-1 ID. Commands never build object paths themselves;
+ * they go through the stores returned by Storage, so the backend can
+ * change without touching command logic.
+ *
+ * @author Tony Hsu
+ */
+interface ObjectStore {
+
+    /**
+     * Return the contents of object ID, or null if there is none.
+     *
+     * @param id String
+     * @return byte[]
+     */
+    byte[] get(String id);
+
+    /**
+     * Return a stream over the contents of object ID.
+     *
+     * @param id String
+     * @return InputStream
+     * @throws IOException if the object cannot be read
+     */
+    InputStream open(String id) throws IOException;
+
+    /**
+     * Store DATA as object ID, replacing any previous contents.
+     *
+     * @param id   String
+     * @param data byte[]
+     */
+    void put(String id, byte[] data);
+
+    /**
+     * Store the contents of SOURCE as object ID.
+     *
+     * @param id     String
+     * @param source File
+     * @throws IOException if SOURCE cannot be read
+     */
+    default void putFile(String id, File source) throws IOException {
+        put(id, Files.readAllBytes(source.toPath()));
+    }
+
+    /**
+     * Write the contents of object ID to TARGET, replacing it.
+     *
+     * @param id     String
+     * @param target File
+     * @throws IOException if the object cannot be copied
+     */
+    default void copyTo(String id, File target) throws IOException {
+        try (InputStream in = open(id)) {
+            Files.copy(in, target.toPath(), REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Return whether object ID is stored.
+     *
+     * @param id String
+     * @return boolean
+     */
+    boolean exists(String id);
+
+    /**
+     * Return the size in bytes of object ID, or 0 if it is not stored.
+     *
+     * @param id String
+     * @return long
+     */
+    long size(String id);
+
+    /**
+     * Return when object ID was last written, in milliseconds since
+     * the epoch, or 0 if it is not stored.
+     *
+     * @param id String
+     * @return long
+     */
+    long lastModified(String id);
+
+    /**
+     * Remove object ID. Returns whether it was stored.
+     *
+     * @param id String
+     * @return boolean
+     */
+    boolean delete(String id);
+
+    /**
+     * Return the sorted IDs of all stored objects starting with PREFIX.
+     *
+     * @param prefix String
+     * @return List
+     */
+    List<String> idsWithPrefix(String prefix);
+
+    /**
+     * Make every object stored so far durable, so that it survives a
+     * crash. Called once before a command updates any reference.
+     *
+     * @throws IOException if an object cannot be flushed
+     */
+    default void sync() throws IOException {
+    }
+
+    /**
+     * Return the contents of every stored object in IDS.
+     *
+     * @param ids Collection
+     * @return Map
+     */
+    default Map<String, byte[]> getAll(Collection<String> ids) {
+        TreeMap<String, byte[]> result = new TreeMap<>();
+        for (String id : ids) {
+            byte[] data = get(id);
+            if (data != null) {
+                result.put(id, data);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store every object in OBJECTS.
+     *
+     * @param objects Map
+     */
+    default void putAll(Map<String, byte[]> objects) {
+        for (Map.Entry<String, byte[]> e : objects.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,374 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The objects one repository must send another so that the receiver
+ * has a commit and its whole history, and the single stream they
+ * travel in.
+ *
+ * Negotiation walks the sender's graph from the wanted commit through
+ * both parents and stops at every commit the receiver already has;
+ * since commits are immutable and always stored with their ancestry,
+ * such a commit stands for all of its history. The blobs of the new
+ * commits are sent unless the receiver has them, and chunked blobs
+ * bring the chunks it lacks. Blobs travel before commits and each
+ * commit after its parents, so that a receiver interrupted while
+ * storing a pack still stores every commit with its history.
+ *
+ * A pack is a signature line, then per object a type byte, the
+ * 40-character ID, an 8-byte length and the contents, then a 0 byte
+ * and the SHA-1 of everything before it. The receiver checks the
+ * SHA-1 before storing anything.
+ *
+ * @author Tony Hsu
+ */
+class Pack {
+
+    /**
+     * first bytes of every pack.
+     */
+    private static final byte[] SIGNATURE =
+            "gitlet pack 1\n".getBytes(StandardCharsets.UTF_8);
+    /**
+     * type of the end marker.
+     */
+    private static final int END = 0;
+    /**
+     * type of a commit.
+     */
+    private static final int COMMIT = 'c';
+    /**
+     * type of a plain blob or chunk.
+     */
+    private static final int BLOB = 'b';
+    /**
+     * type of a chunked blob's manifest.
+     */
+    private static final int MANIFEST = 'm';
+    /**
+     * size of stream buffers.
+     */
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * sender commit store.
+     */
+    private ObjectStore commitStore;
+    /**
+     * sender blob store.
+     */
+    private ObjectStore blobStore;
+    /**
+     * commits to send, each after its parents.
+     */
+    private List<String> commits = new ArrayList<>();
+    /**
+     * plain blobs and chunks to send.
+     */
+    private List<String> blobs = new ArrayList<>();
+    /**
+     * chunked blobs to send.
+     */
+    private List<String> manifests = new ArrayList<>();
+    /**
+     * commits sent whose parents the sender does not have.
+     */
+    private List<String> grafts = new ArrayList<>();
+
+    /**
+     * Pack constructor.
+     *
+     * @param c ObjectStore
+     * @param b ObjectStore
+     */
+    private Pack(ObjectStore c, ObjectStore b) {
+        commitStore = c;
+        blobStore = b;
+    }
+
+    /**
+     * Return the pack of everything a receiver with stores TOCOMMITS
+     * and TOBLOBS lacks to have commit WANT of the sender with stores
+     * FROMCOMMITS and FROMBLOBS and shallow boundary FROMGRAFTS.
+     *
+     * @param fromCommits ObjectStore
+     * @param fromBlobs   ObjectStore
+     * @param fromGrafts  Set
+     * @param want        String
+     * @param toCommits   ObjectStore
+     * @param toBlobs     ObjectStore
+     * @return Pack
+     */
+    static Pack negotiate(ObjectStore fromCommits, ObjectStore fromBlobs,
+                          Set<String> fromGrafts, String want,
+                          ObjectStore toCommits, ObjectStore toBlobs) {
+        Pack result = new Pack(fromCommits, fromBlobs);
+        Set<String> seen = new HashSet<>();
+        Set<String> blobsSeen = new HashSet<>();
+        Map<String, List<String>> parents = new LinkedHashMap<>();
+        List<String> frontier = new ArrayList<>();
+        frontier.add(want);
+        while (!frontier.isEmpty()) {
+            String id = frontier.remove(frontier.size() - 1);
+            if (!seen.add(id) || toCommits.exists(id)) {
+                continue;
+            }
+            byte[] data = fromCommits.get(id);
+            if (data == null) {
+                continue;
+            }
+            Commit cur = Utils.deserialize(data, Commit.class);
+            boolean grafted = fromGrafts.contains(id);
+            if (grafted) {
+                result.grafts.add(id);
+            }
+            parents.put(id, Shallow.parents(cur, grafted));
+            frontier.addAll(parents.get(id));
+            for (String blob : cur.getBlobs().values()) {
+                if (blobsSeen.add(blob) && !toBlobs.exists(blob)) {
+                    result.addBlob(blob, toBlobs, blobsSeen);
+                }
+            }
+        }
+        result.commits = parentsFirst(parents);
+        return result;
+    }
+
+    /**
+     * Return the commits that are keys of PARENTS, each after those of
+     * its parents, as given by PARENTS, that are keys too.
+     *
+     * @param parents Map
+     * @return List
+     */
+    private static List<String> parentsFirst(
+            Map<String, List<String>> parents) {
+        List<String> result = new ArrayList<>();
+        Set<String> done = new HashSet<>();
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        for (String start : parents.keySet()) {
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                String id = stack.peek();
+                boolean ready = true;
+                for (String parent : parents.get(id)) {
+                    if (parents.containsKey(parent)
+                            && !done.contains(parent)) {
+                        stack.push(parent);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    if (done.add(id)) {
+                        result.add(id);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add blob ID, which the receiver with blob store TOBLOBS lacks,
+     * and the chunks it lacks if ID is chunked. SEEN holds the blobs
+     * already considered.
+     *
+     * @param id      String
+     * @param toBlobs ObjectStore
+     * @param seen    Set
+     */
+    private void addBlob(String id, ObjectStore toBlobs, Set<String> seen) {
+        List<String> chunks = Blobs.chunks(blobStore, id);
+        if (chunks == null) {
+            blobs.add(id);
+            return;
+        }
+        manifests.add(id);
+        for (String chunk : chunks) {
+            if (seen.add(chunk) && !toBlobs.exists(chunk)) {
+                blobs.add(chunk);
+            }
+        }
+    }
+
+    /**
+     * Return the number of commits to send.
+     *
+     * @return int
+     */
+    int commitCount() {
+        return commits.size();
+    }
+
+    /**
+     * Return the commits sent that have no parents at the receiver
+     * because the sender is shallow.
+     *
+     * @return List
+     */
+    List<String> getGrafts() {
+        return grafts;
+    }
+
+    /**
+     * Stream the pack into file TARGET.
+     *
+     * @param target File
+     * @throws IOException if an object cannot be read or written
+     */
+    void write(File target) throws IOException {
+        MessageDigest md = sha1();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(target),
+                        BUFFER))) {
+            DataOutputStream body = new DataOutputStream(
+                    new DigestOutputStream(out, md));
+            body.write(SIGNATURE);
+            writeAll(body, BLOB, blobStore, blobs);
+            writeAll(body, MANIFEST, blobStore, manifests);
+            writeAll(body, COMMIT, commitStore, commits);
+            body.write(END);
+            body.flush();
+            out.write(md.digest());
+        }
+    }
+
+    /**
+     * Write every object in IDS from STORE as TYPE to OUT.
+     *
+     * @param out   DataOutputStream
+     * @param type  int
+     * @param store ObjectStore
+     * @param ids   Collection
+     * @throws IOException if an object cannot be read or written
+     */
+    private static void writeAll(DataOutputStream out, int type,
+                                 ObjectStore store, Collection<String> ids)
+            throws IOException {
+        byte[] buf = new byte[BUFFER];
+        for (String id : ids) {
+            out.write(type);
+            out.write(id.getBytes(StandardCharsets.US_ASCII));
+            out.writeLong(store.size(id));
+            try (InputStream in = store.open(id)) {
+                for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                    out.write(buf, 0, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Store the objects of pack file SOURCE in TOCOMMITS and TOBLOBS,
+     * recording chunked blobs in META if it is not null, and return
+     * the IDs of the commits stored. Nothing is stored if the pack is
+     * damaged.
+     *
+     * @param source    File
+     * @param toCommits ObjectStore
+     * @param toBlobs   ObjectStore
+     * @param meta      MetaIndex
+     * @return List
+     * @throws IOException if the pack is damaged or cannot be read
+     */
+    static List<String> unpack(File source, ObjectStore toCommits,
+                               ObjectStore toBlobs, MetaIndex meta)
+            throws IOException {
+        verify(source);
+        List<String> result = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(source),
+                        BUFFER))) {
+            in.readFully(new byte[SIGNATURE.length]);
+            byte[] idBytes = new byte[Utils.UID_LENGTH];
+            for (int type = in.read(); type != END; type = in.read()) {
+                in.readFully(idBytes);
+                String id = new String(idBytes, StandardCharsets.US_ASCII);
+                byte[] data = new byte[(int) in.readLong()];
+                in.readFully(data);
+                if (type == COMMIT) {
+                    toCommits.put(id, data);
+                    result.add(id);
+                } else {
+                    toBlobs.put(id, data);
+                    if (type == MANIFEST && meta != null) {
+                        meta.recordManifest(id);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check the signature and SHA-1 of pack file SOURCE.
+     *
+     * @param source File
+     * @throws IOException if the pack is damaged or cannot be read
+     */
+    private static void verify(File source) throws IOException {
+        MessageDigest md = sha1();
+        long length = source.length() - md.getDigestLength();
+        byte[] head = new byte[SIGNATURE.length];
+        byte[] trailer = new byte[md.getDigestLength()];
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(source),
+                        BUFFER))) {
+            DataInputStream body = new DataInputStream(
+                    new DigestInputStream(in, md));
+            body.readFully(head);
+            byte[] buf = new byte[BUFFER];
+            for (long left = length - head.length; left > 0;
+                 left -= buf.length) {
+                body.readFully(buf, 0, (int) Math.min(left, buf.length));
+            }
+            in.readFully(trailer);
+        } catch (EOFException e) {
+            throw new IOException("truncated pack");
+        }
+        if (!Arrays.equals(head, SIGNATURE)
+                || !Arrays.equals(trailer, md.digest())) {
+            throw new IOException("damaged pack");
+        }
+    }
+
+    /**
+     * Return a new SHA-1 digest.
+     *
+     * @return MessageDigest
+     */
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Process-wide dictionary of interned paths. Every path gets a small
+ * integer the first time it is seen, so tables of many commits that
+ * share a path hold one copy of its string and compare it by number.
+ *
+ * @author Tony Hsu
+ */
+class PathDictionary {
+
+    /**
+     * path numbers by path.
+     */
+    private static final HashMap<String, Integer> NUMBERS = new HashMap<>();
+    /**
+     * paths by number. Slots are only filled before their number is
+     * handed out and a full array is replaced by a larger copy, so
+     * readers need no lock.
+     */
+    private static volatile String[] paths = new String[1024];
+    /**
+     * number of interned paths.
+     */
+    private static volatile int count;
+
+    /**
+     * Return the numbers of NAMES, assigning the next free ones to new
+     * paths, under a single lock.
+     *
+     * @param names String[]
+     * @return int[]
+     */
+    static synchronized int[] intern(String[] names) {
+        int[] result = new int[names.length];
+        for (int i = 0; i < names.length; i += 1) {
+            result[i] = internOne(names[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of PATH, assigning the next one if it is new.
+     * Callers hold the lock.
+     *
+     * @param path String
+     * @return int
+     */
+    private static int internOne(String path) {
+        Integer number = NUMBERS.get(path);
+        if (number == null) {
+            number = count;
+            String[] all = paths;
+            if (number == all.length) {
+                all = Arrays.copyOf(all, 2 * all.length);
+            }
+            all[number] = path;
+            paths = all;
+            NUMBERS.put(path, number);
+            count = number + 1;
+        }
+        return number;
+    }
+
+    /**
+     * Return the path numbered NUMBER.
+     *
+     * @param number int
+     * @return String
+     */
+    static String path(int number) {
+        return paths[number];
+    }
+
+    /**
+     * Return the number of interned paths.
+     *
+     * @return int
+     */
+    static int size() {
+        return count;
+    }
+
+}
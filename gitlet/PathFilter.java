@@ -0,0 +1,203 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bloom filter over the paths a commit changed relative to its first
+ * parent. The metadata index keeps one per commit, so a path-limited
+ * log can rule out most commits from the index alone and only loads
+ * the commits whose filter might contain the path. A filter never
+ * misses a changed path; a false positive only costs an exact check.
+ *
+ * @author Tony Hsu
+ */
+class PathFilter {
+
+    /**
+     * bits per changed path, for roughly a 1% false positive rate.
+     */
+    private static final int BITS_PER_PATH = 10;
+    /**
+     * number of bit positions probed per path.
+     */
+    private static final int PROBES = 7;
+
+    /**
+     * filter bits.
+     */
+    private long[] bits;
+
+    /**
+     * PathFilter constructor.
+     *
+     * @param b long[]
+     */
+    private PathFilter(long[] b) {
+        bits = b;
+    }
+
+    /**
+     * Return a filter holding PATHS.
+     *
+     * @param paths Collection
+     * @return PathFilter
+     */
+    static PathFilter of(Collection<String> paths) {
+        int words = Math.max(1, (paths.size() * BITS_PER_PATH + 63) / 64);
+        PathFilter result = new PathFilter(new long[words]);
+        for (String path : paths) {
+            result.add(path);
+        }
+        return result;
+    }
+
+    /**
+     * Return the filter of the paths commit CUR changed.
+     *
+     * @param cur Commit
+     * @return PathFilter
+     */
+    static PathFilter of(Commit cur) {
+        return of(changedPaths(cur));
+    }
+
+    /**
+     * Return the filter encoded as ENCODED by toString.
+     *
+     * @param encoded String
+     * @return PathFilter
+     */
+    static PathFilter parse(String encoded) {
+        long[] words = new long[encoded.length() / 16];
+        for (int i = 0; i < words.length; i += 1) {
+            words[i] = Long.parseUnsignedLong(
+                    encoded.substring(16 * i, 16 * i + 16), 16);
+        }
+        return new PathFilter(words);
+    }
+
+    /**
+     * Return whether commit ID changed PATH relative to its first
+     * parent, consulting the commit's filter first when it is indexed.
+     *
+     * @param id   String
+     * @param path String
+     * @return boolean
+     */
+    static boolean touches(String id, String path) {
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            PathFilter filter = meta.pathFilter(id);
+            if (filter != null && !filter.mightContain(path)) {
+                return false;
+            }
+        }
+        Commit cur = Git.deserializeCommit(id);
+        return cur != null && !Objects.equals(cur.getBlobsID(path),
+                parentTable(cur).get(path));
+    }
+
+    /**
+     * Return the paths CUR adds, removes or modifies relative to its
+     * first parent, sorted.
+     *
+     * @param cur Commit
+     * @return List
+     */
+    static List<String> changedPaths(Commit cur) {
+        return PathTable.diff(parentTable(cur), cur.getPathTable());
+    }
+
+    /**
+     * Return the files of the first parent of CUR, or none for an
+     * initial or grafted commit.
+     *
+     * @param cur Commit
+     * @return PathTable
+     */
+    private static PathTable parentTable(Commit cur) {
+        String parentID = Shallow.parent(cur);
+        Commit parent = parentID == null ? null
+                : Git.deserializeCommit(parentID);
+        return parent == null ? PathTable.of(new HashMap<>())
+                : parent.getPathTable();
+    }
+
+    /**
+     * Add PATH.
+     *
+     * @param path String
+     */
+    private void add(String path) {
+        long hash = hash(path);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < PROBES; i += 1) {
+            int bit = index(h1 + i * h2);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Return whether PATH may have been added. False means it was not.
+     *
+     * @param path String
+     * @return boolean
+     */
+    boolean mightContain(String path) {
+        long hash = hash(path);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < PROBES; i += 1) {
+            int bit = index(h1 + i * h2);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the bit position for probe hash H.
+     *
+     * @param h int
+     * @return int
+     */
+    private int index(int h) {
+        return (int) ((h & 0xffffffffL) % (bits.length * 64L));
+    }
+
+    /**
+     * Return the 64-bit FNV-1a hash of the UTF-8 bytes of PATH.
+     *
+     * @param path String
+     * @return long
+     */
+    private static long hash(String path) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Return the filter as hex, 16 digits per 64-bit word.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(bits.length * 16);
+        for (long word : bits) {
+            result.append(String.format("%016x", word));
+        }
+        return result.toString();
+    }
+
+}
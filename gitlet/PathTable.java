@@ -0,0 +1,263 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact, immutable snapshot of the files of a commit: the interned
+ * number of every path, sorted by path, and the 20 raw bytes of every
+ * blob ID packed into one buffer, which may live off the heap. A
+ * table costs about 24 bytes per file, against a few hundred for a
+ * HashMap of path and hex ID strings, and tables can be walked side
+ * by side in path order with join, which is how diffs and merges
+ * compare commits without building sets of all their paths.
+ *
+ * @author Tony Hsu
+ */
+class PathTable {
+
+    /**
+     * bytes in a raw blob ID.
+     */
+    static final int ID_BYTES = Utils.UID_LENGTH / 2;
+
+    /**
+     * Something done for every path in a join.
+     */
+    interface JoinVisitor {
+        /**
+         * Visit PATH, where AT holds its index in each joined table,
+         * or -1 if a table does not have it.
+         *
+         * @param path String
+         * @param at   int[]
+         */
+        void visit(String path, int[] at);
+    }
+
+    /**
+     * interned path numbers, in path order.
+     */
+    private int[] paths;
+    /**
+     * raw blob IDs, ID_BYTES per path.
+     */
+    private ByteBuffer ids;
+
+    /**
+     * PathTable constructor.
+     *
+     * @param p int[]
+     * @param i ByteBuffer
+     */
+    private PathTable(int[] p, ByteBuffer i) {
+        paths = p;
+        ids = i;
+    }
+
+    /**
+     * Return the table of BLOBS, a map from path to blob ID, on the
+     * heap.
+     *
+     * @param blobs Map
+     * @return PathTable
+     */
+    static PathTable of(Map<String, String> blobs) {
+        return of(blobs, false);
+    }
+
+    /**
+     * Return the table of BLOBS, a map from path to blob ID, keeping
+     * the IDs off the heap if OFFHEAP.
+     *
+     * @param blobs   Map
+     * @param offHeap boolean
+     * @return PathTable
+     */
+    static PathTable of(Map<String, String> blobs, boolean offHeap) {
+        String[] names = blobs.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        ByteBuffer raw = offHeap
+                ? ByteBuffer.allocateDirect(names.length * ID_BYTES)
+                : ByteBuffer.allocate(names.length * ID_BYTES);
+        for (int i = 0; i < names.length; i += 1) {
+            putHex(raw, i * ID_BYTES, blobs.get(names[i]));
+        }
+        return new PathTable(PathDictionary.intern(names), raw);
+    }
+
+    /**
+     * Return the number of paths.
+     *
+     * @return int
+     */
+    int size() {
+        return paths.length;
+    }
+
+    /**
+     * Return the I-th path.
+     *
+     * @param i int
+     * @return String
+     */
+    String path(int i) {
+        return PathDictionary.path(paths[i]);
+    }
+
+    /**
+     * Return the blob ID of the I-th path, in hex.
+     *
+     * @param i int
+     * @return String
+     */
+    String id(int i) {
+        char[] hex = new char[Utils.UID_LENGTH];
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int b = ids.get(i * ID_BYTES + k) & 0xff;
+            hex[2 * k] = Character.forDigit(b >>> 4, 16);
+            hex[2 * k + 1] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Return the index of PATH, or -1 if it is not in the table.
+     *
+     * @param path String
+     * @return int
+     */
+    int find(String path) {
+        int lo = 0;
+        int hi = paths.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = path(mid).compareTo(path);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the blob ID of PATH, or null if it is not in the table.
+     *
+     * @param path String
+     * @return String
+     */
+    String get(String path) {
+        int i = find(path);
+        return i < 0 ? null : id(i);
+    }
+
+    /**
+     * Return whether the I-th path of this table and the J-th path of
+     * OTHER have the same blob ID. Both indices may be -1 for absent.
+     *
+     * @param i     int
+     * @param other PathTable
+     * @param j     int
+     * @return boolean
+     */
+    boolean sameID(int i, PathTable other, int j) {
+        if (i < 0 || j < 0) {
+            return i < 0 && j < 0;
+        }
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            if (ids.get(i * ID_BYTES + k)
+                    != other.ids.get(j * ID_BYTES + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the paths whose blob IDs differ between BEFORE and AFTER,
+     * including paths only one of them has, in path order.
+     *
+     * @param before PathTable
+     * @param after  PathTable
+     * @return ArrayList
+     */
+    static ArrayList<String> diff(PathTable before, PathTable after) {
+        ArrayList<String> result = new ArrayList<>();
+        join(new PathTable[] {before, after}, (path, at) -> {
+            if (!before.sameID(at[0], after, at[1])) {
+                result.add(path);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Walk TABLES side by side in path order, calling VISITOR once for
+     * every path any of them has. The array passed to VISITOR is
+     * reused between calls.
+     *
+     * @param tables  PathTable[]
+     * @param visitor JoinVisitor
+     */
+    static void join(PathTable[] tables, JoinVisitor visitor) {
+        int[] next = new int[tables.length];
+        int[] at = new int[tables.length];
+        while (true) {
+            int number = -1;
+            String path = null;
+            for (int t = 0; t < tables.length; t += 1) {
+                if (next[t] == tables[t].size()) {
+                    continue;
+                }
+                int candidate = tables[t].paths[next[t]];
+                if (number < 0 || candidate != number
+                        && PathDictionary.path(candidate)
+                        .compareTo(path) < 0) {
+                    number = candidate;
+                    path = PathDictionary.path(candidate);
+                }
+            }
+            if (number < 0) {
+                return;
+            }
+            for (int t = 0; t < tables.length; t += 1) {
+                if (next[t] < tables[t].size()
+                        && tables[t].paths[next[t]] == number) {
+                    at[t] = next[t];
+                    next[t] += 1;
+                } else {
+                    at[t] = -1;
+                }
+            }
+            visitor.visit(path, at);
+        }
+    }
+
+    /**
+     * Write the 40-digit hex ID HEX as raw bytes into RAW at OFFSET.
+     *
+     * @param raw    ByteBuffer
+     * @param offset int
+     * @param hex    String
+     */
+    private static void putHex(ByteBuffer raw, int offset, String hex) {
+        if (hex.length() != Utils.UID_LENGTH) {
+            throw new IllegalArgumentException("Not a blob ID: " + hex);
+        }
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int hi = Character.digit(hex.charAt(2 * k), 16);
+            int lo = Character.digit(hex.charAt(2 * k + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Not a blob ID: " + hex);
+            }
+            raw.put(offset + k, (byte) (hi << 4 | lo));
+        }
+    }
+
+}
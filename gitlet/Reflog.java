@@ -0,0 +1,471 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Where each branch head has been, oldest first, one file per branch.
+ * Every move of a head appends one fixed-width record: the old head as
+ * 20 raw bytes, all zero if there was none, the new head likewise, the
+ * time of the move in milliseconds as 8 bytes, and one byte naming the
+ * operation. Records are written with a single append, so a crash can
+ * leave at most a partial last record, which readers ignore and the
+ * next append cuts off before writing. Moves made during a command are
+ * queued and written only once the repository they belong to has been
+ * saved, so a log never names a head that was not kept.
+ *
+ * Because records have a fixed size, the newest N are read with one
+ * seek from the end, however long the log. Records are in time order,
+ * so expiry finds the first record to keep by binary search over the
+ * timestamps and rewrites only the tail from there.
+ *
+ * @author Tony Hsu
+ */
+class Reflog {
+
+    /**
+     * reflog directory, relative to a working directory.
+     */
+    static final String DIR = ".gitlet/logs";
+    /**
+     * bytes in a raw ID.
+     */
+    private static final int ID_BYTES = Utils.UID_LENGTH / 2;
+    /**
+     * bytes in a record.
+     */
+    static final int RECORD = 2 * ID_BYTES + Long.BYTES + 1;
+    /**
+     * suffix of a reflog being rewritten, which no escaped name has.
+     */
+    private static final String TMP = "%tmp";
+    /**
+     * operation of the first head of the first branch.
+     */
+    static final char INIT = 'i';
+    /**
+     * operation of a commit.
+     */
+    static final char COMMIT = 'c';
+    /**
+     * operation of a merge, made or fast-forwarded.
+     */
+    static final char MERGE = 'm';
+    /**
+     * operation of a reset.
+     */
+    static final char RESET = 'r';
+    /**
+     * operation of the first head of a new branch.
+     */
+    static final char BRANCH = 'b';
+    /**
+     * operation of the first head of a cloned branch.
+     */
+    static final char CLONE = 'C';
+    /**
+     * operation of a cherry-pick.
+     */
+    static final char CHERRY_PICK = 'p';
+    /**
+     * operation of a rebase.
+     */
+    static final char REBASE = 'R';
+    /**
+     * operation of a fetch into a remote-tracking branch.
+     */
+    static final char FETCH = 'f';
+    /**
+     * operation of a push into a branch of a remote.
+     */
+    static final char PUSH = 'P';
+
+    /**
+     * records queued by the current command and not yet written.
+     */
+    private static final List<Queued> PENDING = new ArrayList<>();
+
+    /**
+     * One queued record, with the reflog it goes to.
+     */
+    private static class Queued {
+        /**
+         * reflog directory.
+         */
+        final String dir;
+        /**
+         * branch whose head moved.
+         */
+        final String branch;
+        /**
+         * the record itself.
+         */
+        final byte[] record;
+
+        /**
+         * Queued constructor.
+         *
+         * @param logs  String
+         * @param name  String
+         * @param bytes byte[]
+         */
+        Queued(String logs, String name, byte[] bytes) {
+            dir = logs;
+            branch = name;
+            record = bytes;
+        }
+    }
+
+    /**
+     * One move of a branch head.
+     */
+    static class Entry {
+        /**
+         * head before the move, or null if there was none.
+         */
+        final String oldID;
+        /**
+         * head after the move.
+         */
+        final String newID;
+        /**
+         * time of the move, in milliseconds.
+         */
+        final long time;
+        /**
+         * operation that moved it.
+         */
+        final char op;
+
+        /**
+         * Entry constructor.
+         *
+         * @param oldHead String
+         * @param newHead String
+         * @param millis  long
+         * @param kind    char
+         */
+        Entry(String oldHead, String newHead, long millis, char kind) {
+            oldID = oldHead;
+            newID = newHead;
+            time = millis;
+            op = kind;
+        }
+
+        /**
+         * Return the name of the operation.
+         *
+         * @return String
+         */
+        String opName() {
+            switch (op) {
+            case INIT:
+                return "initial commit";
+            case COMMIT:
+                return "commit";
+            case MERGE:
+                return "merge";
+            case RESET:
+                return "reset";
+            case BRANCH:
+                return "branch";
+            case CLONE:
+                return "clone";
+            case CHERRY_PICK:
+                return "cherry-pick";
+            case REBASE:
+                return "rebase";
+            case FETCH:
+                return "fetch";
+            case PUSH:
+                return "push";
+            default:
+                return "unknown";
+            }
+        }
+    }
+
+    /**
+     * Append a move of branch BRANCH from OLDID, which may be null, to
+     * NEWID by operation OP to the reflog in directory DIR.
+     *
+     * @param dir    String
+     * @param branch String
+     * @param oldID  String
+     * @param newID  String
+     * @param op     char
+     */
+    static void append(String dir, String branch, String oldID,
+                       String newID, char op) {
+        write(dir, branch, record(oldID, newID, op));
+    }
+
+    /**
+     * Queue a move of branch BRANCH from OLDID, which may be null, to
+     * NEWID by operation OP, to be appended to the reflog in directory
+     * DIR by the next flush of DIR.
+     *
+     * @param dir    String
+     * @param branch String
+     * @param oldID  String
+     * @param newID  String
+     * @param op     char
+     */
+    static synchronized void queue(String dir, String branch, String oldID,
+                                   String newID, char op) {
+        PENDING.add(new Queued(dir, branch, record(oldID, newID, op)));
+    }
+
+    /**
+     * Append the records queued for directory DIR, in order, and
+     * forget them.
+     *
+     * @param dir String
+     */
+    static synchronized void flush(String dir) {
+        for (Iterator<Queued> it = PENDING.iterator(); it.hasNext();) {
+            Queued q = it.next();
+            if (q.dir.equals(dir)) {
+                write(q.dir, q.branch, q.record);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Return the record of a move from OLDID, which may be null, to
+     * NEWID by operation OP, made now.
+     *
+     * @param oldID String
+     * @param newID String
+     * @param op    char
+     * @return byte[]
+     */
+    private static byte[] record(String oldID, String newID, char op) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        putID(record, 0, oldID);
+        putID(record, ID_BYTES, newID);
+        record.putLong(2 * ID_BYTES, System.currentTimeMillis());
+        record.put(RECORD - 1, (byte) op);
+        return record.array();
+    }
+
+    /**
+     * Append RECORD to the reflog of branch BRANCH in directory DIR,
+     * first cutting off any partial record.
+     *
+     * @param dir    String
+     * @param branch String
+     * @param record byte[]
+     */
+    private static void write(String dir, String branch, byte[] record) {
+        File file = file(dir, branch);
+        file.getParentFile().mkdirs();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            long whole = out.length() - out.length() % RECORD;
+            out.setLength(whole);
+            out.seek(whole);
+            out.write(record);
+        } catch (IOException e) {
+            System.out.println("Cannot write log.");
+        }
+    }
+
+    /**
+     * Return the newest MAX moves of branch BRANCH, newest first.
+     *
+     * @param branch String
+     * @param max    int
+     * @return List
+     */
+    static List<Entry> read(String branch, int max) {
+        List<Entry> result = new ArrayList<>();
+        File file = file(DIR, branch);
+        if (!file.isFile()) {
+            return result;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long records = in.length() / RECORD;
+            int n = (int) Math.min(records, max);
+            byte[] tail = new byte[n * RECORD];
+            in.seek((records - n) * RECORD);
+            in.readFully(tail);
+            ByteBuffer buf = ByteBuffer.wrap(tail);
+            for (int i = n - 1; i >= 0; i -= 1) {
+                result.add(entry(buf, i * RECORD));
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot read log.");
+        }
+        return result;
+    }
+
+    /**
+     * Drop every move made before time CUTOFF from every reflog.
+     *
+     * @param cutoff long
+     */
+    static void expire(long cutoff) {
+        String[] names = new File(DIR).list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            if (name.endsWith(TMP)) {
+                continue;
+            }
+            try {
+                expire(new File(DIR, name), cutoff);
+            } catch (IOException e) {
+                System.out.println("Cannot write log.");
+            }
+        }
+    }
+
+    /**
+     * Drop every record of reflog file FILE made before time CUTOFF.
+     *
+     * @param file   File
+     * @param cutoff long
+     * @throws IOException if the file cannot be rewritten
+     */
+    private static void expire(File file, long cutoff) throws IOException {
+        long records;
+        long lo = 0;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            records = in.length() / RECORD;
+            long hi = records;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                in.seek(mid * RECORD + 2 * ID_BYTES);
+                if (in.readLong() < cutoff) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+        }
+        if (lo == 0) {
+            return;
+        }
+        File tmp = new File(file.getPath() + TMP);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] kept = new byte[(int) ((records - lo) * RECORD)];
+            in.seek(lo * RECORD);
+            in.readFully(kept);
+            Utils.writeContents(tmp, kept);
+        }
+        Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING,
+                ATOMIC_MOVE);
+    }
+
+    /**
+     * Return every ID in every reflog, old and new.
+     *
+     * @return Set
+     */
+    static Set<String> ids() {
+        Set<String> result = new HashSet<>();
+        String[] names = new File(DIR).list();
+        if (names == null) {
+            return result;
+        }
+        for (String name : names) {
+            if (name.endsWith(TMP)) {
+                continue;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(
+                    Utils.readContents(new File(DIR, name)));
+            for (int at = 0; at + RECORD <= buf.limit(); at += RECORD) {
+                Entry e = entry(buf, at);
+                if (e.oldID != null) {
+                    result.add(e.oldID);
+                }
+                result.add(e.newID);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete the reflog of branch BRANCH.
+     *
+     * @param branch String
+     */
+    static void delete(String branch) {
+        file(DIR, branch).delete();
+    }
+
+    /**
+     * Return the reflog file of branch BRANCH in directory DIR. Slashes
+     * in the name are escaped, so that every log is in DIR itself.
+     *
+     * @param dir    String
+     * @param branch String
+     * @return File
+     */
+    private static File file(String dir, String branch) {
+        return new File(dir, branch.replace("%", "%25")
+                .replace("/", "%2F"));
+    }
+
+    /**
+     * Return the record at offset AT of BUF.
+     *
+     * @param buf ByteBuffer
+     * @param at  int
+     * @return Entry
+     */
+    private static Entry entry(ByteBuffer buf, int at) {
+        return new Entry(getID(buf, at), getID(buf, at + ID_BYTES),
+                buf.getLong(at + 2 * ID_BYTES),
+                (char) buf.get(at + RECORD - 1));
+    }
+
+    /**
+     * Write the 40-digit hex ID HEX, or zeros if it is null, as raw
+     * bytes into RAW at OFFSET.
+     *
+     * @param raw    ByteBuffer
+     * @param offset int
+     * @param hex    String
+     */
+    private static void putID(ByteBuffer raw, int offset, String hex) {
+        for (int k = 0; hex != null && k < ID_BYTES; k += 1) {
+            raw.put(offset + k, (byte) Integer.parseInt(
+                    hex.substring(2 * k, 2 * k + 2), 16));
+        }
+    }
+
+    /**
+     * Return the raw ID at OFFSET of RAW as hex, or null if it is all
+     * zeros.
+     *
+     * @param raw    ByteBuffer
+     * @param offset int
+     * @return String
+     */
+    private static String getID(ByteBuffer raw, int offset) {
+        StringBuilder hex = new StringBuilder(Utils.UID_LENGTH);
+        boolean zero = true;
+        for (int k = 0; k < ID_BYTES; k += 1) {
+            int b = raw.get(offset + k) & 0xff;
+            zero &= b == 0;
+            hex.append(Character.forDigit(b >> 4, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return zero ? null : hex.toString();
+    }
+
+}
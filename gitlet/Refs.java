@@ -0,0 +1,401 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Tags, kept as refs outside the repository state so that there may be
+ * many thousands of them without any being read by commands that do
+ * not name one.
+ *
+ * A tag is either loose, a file in the tags directory holding the ID
+ * it names, or packed, a line of the packed-refs file. That file
+ * starts with a header line, then holds one line "ID NAME" per tag,
+ * sorted by name, each annotated tag followed by a line "^ID" giving
+ * the commit it names. A tag is found in it by binary search over the
+ * mapped file, reading only the lines probed. A loose tag overrides a
+ * packed one of the same name; pack moves every loose tag into the
+ * packed file.
+ *
+ * A lightweight tag names a commit. An annotated tag names a tag
+ * object, stored as a blob: the text "object ID", "tag NAME" and
+ * "date MILLIS" lines, a blank line, and the message.
+ *
+ * @author Tony Hsu
+ */
+class Refs {
+
+    /**
+     * loose tags directory, relative to a working directory.
+     */
+    static final String DIR = ".gitlet/refs/tags";
+    /**
+     * packed refs file, relative to a working directory.
+     */
+    static final String PACKED = ".gitlet/packed-refs";
+    /**
+     * first line of the packed refs file.
+     */
+    private static final String HEADER = "# pack-refs with: peeled sorted\n";
+
+    /**
+     * Return whether NAME may name a tag.
+     *
+     * @param name String
+     * @return boolean
+     */
+    static boolean validName(String name) {
+        return name.matches("[A-Za-z0-9_][A-Za-z0-9._-]*")
+                && !name.contains("..") && !name.endsWith(".");
+    }
+
+    /**
+     * Return the ID tag NAME holds, or null if there is no such tag.
+     *
+     * @param name String
+     * @return String
+     */
+    static String resolve(String name) {
+        String[] found = lookup(name);
+        return found == null ? null : found[0];
+    }
+
+    /**
+     * Return the ID of the commit tag NAME names, or null if there is
+     * no such tag.
+     *
+     * @param name String
+     * @return String
+     */
+    static String peel(String name) {
+        String[] found = lookup(name);
+        if (found == null) {
+            return null;
+        }
+        return found[1] != null ? found[1] : peelID(found[0]);
+    }
+
+    /**
+     * Return the commit named by ID, a commit or tag object ID.
+     *
+     * @param id String
+     * @return String
+     */
+    static String peelID(String id) {
+        if (Storage.commits().exists(id)) {
+            return id;
+        }
+        byte[] data = Storage.blobs().get(id);
+        if (data == null) {
+            return null;
+        }
+        String text = new String(data, StandardCharsets.UTF_8);
+        return text.startsWith("object ")
+                ? text.substring(7, 7 + Utils.UID_LENGTH) : null;
+    }
+
+    /**
+     * Store a tag object for tag NAME of COMMIT with MESSAGE and
+     * return its ID.
+     *
+     * @param name    String
+     * @param commit  String
+     * @param message String
+     * @return String
+     */
+    static String annotate(String name, String commit, String message) {
+        byte[] data = ("object " + commit + "\ntag " + name + "\ndate "
+                + System.currentTimeMillis() + "\n\n" + message + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+        String id = Utils.sha1(data);
+        Storage.blobs().put(id, data);
+        return id;
+    }
+
+    /**
+     * Make tag NAME hold ID, as a loose tag.
+     *
+     * @param name String
+     * @param id   String
+     */
+    static void set(String name, String id) {
+        File file = new File(DIR, name);
+        file.getParentFile().mkdirs();
+        Utils.writeContents(file, id + "\n");
+    }
+
+    /**
+     * Delete tag NAME, rewriting the packed file if it is packed.
+     * Returns whether there was such a tag; a name that cannot be a
+     * tag's is never looked up.
+     *
+     * @param name String
+     * @return boolean
+     * @throws IOException if the packed file cannot be rewritten
+     */
+    static boolean delete(String name) throws IOException {
+        if (!validName(name)) {
+            return false;
+        }
+        boolean loose = new File(DIR, name).delete();
+        if (packedLookup(name) == null) {
+            return loose;
+        }
+        TreeMap<String, String[]> packed = readPacked();
+        packed.remove(name);
+        writePacked(packed);
+        return true;
+    }
+
+    /**
+     * Return every tag by name, each as the ID it holds and the commit
+     * it names if it is a packed annotated tag, else null.
+     *
+     * @return TreeMap
+     */
+    static TreeMap<String, String[]> all() {
+        TreeMap<String, String[]> result = readPacked();
+        String[] names = new File(DIR).list();
+        if (names != null) {
+            for (String name : names) {
+                String id = readLoose(name);
+                if (id != null) {
+                    result.put(name, new String[] {id, null});
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Move every loose tag into the packed file, recording the commit
+     * each annotated tag names. Returns the number of tags packed.
+     *
+     * @return int
+     * @throws IOException if the packed file cannot be written
+     */
+    static int pack() throws IOException {
+        TreeMap<String, String[]> tags = all();
+        for (Map.Entry<String, String[]> e : tags.entrySet()) {
+            String id = e.getValue()[0];
+            if (e.getValue()[1] == null && !Storage.commits().exists(id)) {
+                e.getValue()[1] = peelID(id);
+            }
+        }
+        writePacked(tags);
+        String[] names = new File(DIR).list();
+        if (names != null) {
+            for (String name : names) {
+                new File(DIR, name).delete();
+            }
+        }
+        return tags.size();
+    }
+
+    /**
+     * Return the ID tag NAME holds and the commit it names if known,
+     * or null if there is no such tag.
+     *
+     * @param name String
+     * @return String[]
+     */
+    private static String[] lookup(String name) {
+        if (!validName(name)) {
+            return null;
+        }
+        String id = readLoose(name);
+        if (id != null) {
+            return new String[] {id, null};
+        }
+        return packedLookup(name);
+    }
+
+    /**
+     * Return the ID in loose tag NAME, or null.
+     *
+     * @param name String
+     * @return String
+     */
+    private static String readLoose(String name) {
+        File file = new File(DIR, name);
+        if (!file.isFile()) {
+            return null;
+        }
+        String id = Utils.readContentsAsString(file).trim();
+        return id.length() == Utils.UID_LENGTH ? id : null;
+    }
+
+    /**
+     * Return the ID packed tag NAME holds and the commit it names if
+     * annotated, else null, or null if it is not packed. Binary search
+     * over the sorted lines of the mapped packed file.
+     *
+     * @param name String
+     * @return String[]
+     */
+    static String[] packedLookup(String name) {
+        File file = new File(PACKED);
+        if (!file.isFile()) {
+            return null;
+        }
+        byte[] target = name.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            int lo = lineEnd(buf, 0);
+            int hi = buf.limit();
+            while (lo < hi) {
+                int start = lineStart(buf, lo, (lo + hi) >>> 1);
+                if (buf.get(start) == '^') {
+                    start = lineStart(buf, lo, start - 1);
+                }
+                int end = lineEnd(buf, start);
+                int cmp = compareName(buf, start + Utils.UID_LENGTH + 1,
+                        buf.get(end - 1) == '\n' ? end - 1 : end, target);
+                int next = end < buf.limit() && buf.get(end) == '^'
+                        ? lineEnd(buf, end) : end;
+                if (cmp == 0) {
+                    String peeled = next == end ? null
+                            : text(buf, end + 1, end + 1 + Utils.UID_LENGTH);
+                    return new String[] {
+                        text(buf, start, start + Utils.UID_LENGTH), peeled};
+                } else if (cmp > 0) {
+                    hi = start;
+                } else {
+                    lo = next;
+                }
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Return the offset of the start of the line holding offset AT of
+     * BUF, which is at least FLOOR, a line start.
+     *
+     * @param buf   MappedByteBuffer
+     * @param floor int
+     * @param at    int
+     * @return int
+     */
+    private static int lineStart(MappedByteBuffer buf, int floor, int at) {
+        while (at > floor && buf.get(at - 1) != '\n') {
+            at -= 1;
+        }
+        return at;
+    }
+
+    /**
+     * Return the offset just past the end of the line starting at
+     * START of BUF.
+     *
+     * @param buf   MappedByteBuffer
+     * @param start int
+     * @return int
+     */
+    private static int lineEnd(MappedByteBuffer buf, int start) {
+        int at = start;
+        while (at < buf.limit() && buf.get(at) != '\n') {
+            at += 1;
+        }
+        return Math.min(at + 1, buf.limit());
+    }
+
+    /**
+     * Compare the bytes BUF[FROM..TO) with TARGET, as unsigned bytes.
+     *
+     * @param buf    MappedByteBuffer
+     * @param from   int
+     * @param to     int
+     * @param target byte[]
+     * @return int
+     */
+    private static int compareName(MappedByteBuffer buf, int from, int to,
+                                   byte[] target) {
+        int n = Math.min(to - from, target.length);
+        for (int i = 0; i < n; i += 1) {
+            int c = (buf.get(from + i) & 0xff) - (target[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return (to - from) - target.length;
+    }
+
+    /**
+     * Return BUF[FROM..TO) as text.
+     *
+     * @param buf  MappedByteBuffer
+     * @param from int
+     * @param to   int
+     * @return String
+     */
+    private static String text(MappedByteBuffer buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i += 1) {
+            bytes[i] = buf.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return every packed tag by name, as in all.
+     *
+     * @return TreeMap
+     */
+    private static TreeMap<String, String[]> readPacked() {
+        TreeMap<String, String[]> result = new TreeMap<>();
+        File file = new File(PACKED);
+        if (!file.isFile()) {
+            return result;
+        }
+        String[] last = null;
+        for (String line : Utils.readContentsAsString(file).split("\n")) {
+            if (line.startsWith("^") && last != null) {
+                last[1] = line.substring(1);
+            } else if (line.length() > Utils.UID_LENGTH
+                    && !line.startsWith("#")) {
+                last = new String[] {line.substring(0, Utils.UID_LENGTH),
+                    null};
+                result.put(line.substring(Utils.UID_LENGTH + 1), last);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace the packed file with TAGS, as given by all.
+     *
+     * @param tags TreeMap
+     * @throws IOException if it cannot be written
+     */
+    private static void writePacked(TreeMap<String, String[]> tags)
+            throws IOException {
+        StringBuilder out = new StringBuilder(HEADER);
+        for (Map.Entry<String, String[]> e : tags.entrySet()) {
+            out.append(e.getValue()[0]).append(' ').append(e.getKey())
+                    .append('\n');
+            if (e.getValue()[1] != null) {
+                out.append('^').append(e.getValue()[1]).append('\n');
+            }
+        }
+        File tmp = new File(PACKED + ".tmp");
+        Utils.writeContents(tmp, out.toString());
+        Files.move(tmp.toPath(), new File(PACKED).toPath(),
+                REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,258 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Another gitlet repository on the local file system, named by the
+ * path of its .gitlet directory. Gives access to its stores, state and
+ * lock, and moves objects to and from it as packs.
+ *
+ * @author Tony Hsu
+ */
+class Remote {
+
+    /**
+     * the remote's .gitlet directory.
+     */
+    private File dir;
+
+    /**
+     * Remote constructor. PATH uses / as separator.
+     *
+     * @param path String
+     */
+    Remote(String path) {
+        dir = new File(path.replace("/", File.separator));
+    }
+
+    /**
+     * Return whether the remote repository exists.
+     *
+     * @return boolean
+     */
+    boolean exists() {
+        return new File(dir, "mainControl.file").isFile();
+    }
+
+    /**
+     * Return the remote's commit store.
+     *
+     * @return ObjectStore
+     */
+    ObjectStore commits() {
+        return new LooseObjectStore(file("commits").getPath() + "/");
+    }
+
+    /**
+     * Return the remote's blob store.
+     *
+     * @return ObjectStore
+     */
+    ObjectStore blobs() {
+        return new LooseObjectStore(file("blobs").getPath() + "/");
+    }
+
+    /**
+     * Return the remote's shallow boundary.
+     *
+     * @return Set
+     */
+    Set<String> grafts() {
+        return Shallow.read(file("shallow"));
+    }
+
+    /**
+     * Take the remote's lock if it is free, or return null.
+     *
+     * @return RepoLock
+     */
+    RepoLock lock() {
+        return RepoLock.tryAcquire(file("lock").getPath());
+    }
+
+    /**
+     * Return whether the remote is the repository in the current
+     * directory.
+     *
+     * @return boolean
+     */
+    boolean isLocal() {
+        try {
+            return dir.getCanonicalFile().equals(
+                    new File(".gitlet").getCanonicalFile());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the remote's reflog directory.
+     *
+     * @return String
+     */
+    String logs() {
+        return file("logs").getPath();
+    }
+
+    /**
+     * Return the remote's saved state.
+     *
+     * @return Git
+     */
+    Git load() {
+        return Utils.deserialize(Utils.readContents(file("mainControl.file")),
+                Git.class);
+    }
+
+    /**
+     * Save STATE as the remote's state.
+     *
+     * @param state Git
+     * @throws IOException if the state cannot be written
+     */
+    void save(Git state) throws IOException {
+        File tmp = file("mainControl.file.tmp");
+        Utils.writeContents(tmp, Utils.serialize(state));
+        Files.move(tmp.toPath(), file("mainControl.file").toPath(),
+                REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * Return the remote's metadata index, or null if it keeps none.
+     * The caller closes it.
+     *
+     * @return MetaIndex
+     */
+    MetaIndex meta() {
+        String base = file("meta").getPath();
+        return KVStore.exists(base) ? new MetaIndex(base) : null;
+    }
+
+    /**
+     * Send everything the remote lacks to have local commit WANT, and
+     * make it durable there. Returns the number of commits sent.
+     *
+     * @param want String
+     * @return int
+     * @throws IOException if the transfer fails
+     */
+    int push(String want) throws IOException {
+        ObjectStore toCommits = commits();
+        ObjectStore toBlobs = blobs();
+        Pack pack = Pack.negotiate(Storage.commits(), Storage.blobs(),
+                Shallow.read(new File(Shallow.FILE)), want, toCommits,
+                toBlobs);
+        MetaIndex meta = meta();
+        try {
+            List<Commit> sent = transfer(pack, file("incoming.pack"),
+                    toCommits, toBlobs, meta, file("shallow"));
+            toBlobs.sync();
+            toCommits.sync();
+            GlobalLog.append(file("globalLog.txt"), sent);
+            return sent.size();
+        } finally {
+            if (meta != null) {
+                meta.close();
+            }
+        }
+    }
+
+    /**
+     * Receive everything the local repository lacks to have remote
+     * commit WANT. Returns the number of commits received.
+     *
+     * @param want String
+     * @return int
+     * @throws IOException if the transfer fails
+     */
+    int fetch(String want) throws IOException {
+        Pack pack = Pack.negotiate(commits(), blobs(), grafts(), want,
+                Storage.commits(), Storage.blobs());
+        List<Commit> received = transfer(pack,
+                new File(".gitlet/incoming.pack"), Storage.commits(),
+                Storage.blobs(), Storage.meta(), new File(Shallow.FILE));
+        for (Commit cur : received) {
+            GlobalLog.append(cur);
+        }
+        return received.size();
+    }
+
+    /**
+     * Move PACK through pack file PACKFILE into stores TOCOMMITS and
+     * TOBLOBS, then record the new commits in metadata index META, if
+     * not null, and the sender's shallow boundary in graft file
+     * GRAFTFILE. Returns the commits moved, oldest first. Commits the
+     * sender has without parents stay without parents at the receiver
+     * unless it has them.
+     *
+     * @param pack      Pack
+     * @param packFile  File
+     * @param toCommits ObjectStore
+     * @param toBlobs   ObjectStore
+     * @param meta      MetaIndex
+     * @param graftFile File
+     * @return List
+     * @throws IOException if the transfer fails
+     */
+    private static List<Commit> transfer(Pack pack, File packFile,
+                                         ObjectStore toCommits,
+                                         ObjectStore toBlobs,
+                                         MetaIndex meta, File graftFile)
+            throws IOException {
+        List<Commit> commits = new ArrayList<>();
+        if (pack.commitCount() == 0) {
+            return commits;
+        }
+        List<String> received;
+        try {
+            pack.write(packFile);
+            received = Pack.unpack(packFile, toCommits, toBlobs, meta);
+        } finally {
+            packFile.delete();
+        }
+        for (String id : received) {
+            commits.add(Utils.deserialize(toCommits.get(id), Commit.class));
+        }
+        List<String> cut = new ArrayList<>();
+        for (Commit cur : commits) {
+            if (pack.getGrafts().contains(cur.getSHA1ID())) {
+                for (String parent : Shallow.parents(cur, false)) {
+                    if (!toCommits.exists(parent)) {
+                        cut.add(cur.getSHA1ID());
+                        break;
+                    }
+                }
+            }
+        }
+        if (!cut.isEmpty()) {
+            Shallow.addGrafts(graftFile, cut);
+        }
+        commits.sort(Comparator.comparing(Commit::getTime));
+        if (meta != null) {
+            for (Commit cur : commits) {
+                meta.recordCommit(cur);
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Return the file NAME in the remote's .gitlet directory.
+     *
+     * @param name String
+     * @return File
+     */
+    private File file(String name) {
+        return new File(dir, name);
+    }
+
+}
@@ -0,0 +1,97 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Replays commits one after another onto a commit, as cherry-pick
+ * and rebase do. Each commit is applied by a three-way merge of file
+ * tables in memory, with its first parent as the split point, the
+ * last replayed commit as the current side and the commit itself as
+ * the given side. Files that conflict are kept as conflict blobs, as
+ * merge does. A commit that changes nothing is dropped.
+ *
+ * Neither the working directory nor the commit store is touched: the
+ * new commits are only built, so that the caller can check for files
+ * in the way, then write them all and check out the last one once.
+ *
+ * @author Tony Hsu
+ */
+class Replay {
+
+    /**
+     * the last replayed commit, or the one replayed onto.
+     */
+    private Commit tip;
+    /**
+     * the new commits, oldest first.
+     */
+    private final List<Commit> made = new ArrayList<>();
+    /**
+     * paths that conflicted in any replayed commit.
+     */
+    private final TreeSet<String> conflicts = new TreeSet<>();
+
+    /**
+     * Replay constructor.
+     *
+     * @param onto Commit
+     */
+    Replay(Commit onto) {
+        tip = onto;
+    }
+
+    /**
+     * Replay PICK on the tip. Returns whether it changed any file;
+     * if not, no commit is made for it.
+     *
+     * @param pick Commit
+     * @return boolean
+     */
+    boolean apply(Commit pick) {
+        Commit parent = Git.deserializeCommit(pick.getParent());
+        PathTable split = parent == null ? PathTable.of(new HashMap<>())
+                : parent.getPathTable();
+        HashMap<String, String> files = MergeClassifier.merge(split,
+                tip.getPathTable(), pick.getPathTable(), conflicts);
+        if (files.equals(tip.getBlobs())) {
+            return false;
+        }
+        tip = new Commit(pick.getMessage(), tip.getSHA1ID(), null, files);
+        made.add(tip);
+        return true;
+    }
+
+    /**
+     * Return the last replayed commit, or the one replayed onto if
+     * none was made.
+     *
+     * @return Commit
+     */
+    Commit tip() {
+        return tip;
+    }
+
+    /**
+     * Return the new commits, oldest first.
+     *
+     * @return List
+     */
+    List<Commit> made() {
+        return Collections.unmodifiableList(made);
+    }
+
+    /**
+     * Return the paths that conflicted, sorted.
+     *
+     * @return Set
+     */
+    Set<String> conflicts() {
+        return Collections.unmodifiableSet(conflicts);
+    }
+
+}
@@ -0,0 +1,110 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * Exclusive lock on a repository, held by commands that change it so
+ * that two gitlet processes never interleave their load-modify-save
+ * cycles. Commands that only read do not take it.
+ *
+ * @author Tony Hsu
+ */
+class RepoLock {
+
+    /**
+     * lock file.
+     */
+    static final String LOCK_FILE = ".gitlet/lock";
+
+    /**
+     * open lock file.
+     */
+    private RandomAccessFile file;
+    /**
+     * held lock.
+     */
+    private FileLock lock;
+
+    /**
+     * RepoLock constructor.
+     *
+     * @param f RandomAccessFile
+     * @param l FileLock
+     */
+    private RepoLock(RandomAccessFile f, FileLock l) {
+        file = f;
+        lock = l;
+    }
+
+    /**
+     * Wait for and take the lock of the repository in the current
+     * directory.
+     *
+     * @return RepoLock
+     */
+    static RepoLock acquire() {
+        return acquire(LOCK_FILE);
+    }
+
+    /**
+     * Wait for and take the lock held in file PATH.
+     *
+     * @param path String
+     * @return RepoLock
+     */
+    static RepoLock acquire(String path) {
+        try {
+            RandomAccessFile f = new RandomAccessFile(path, "rw");
+            FileChannel channel = f.getChannel();
+            return new RepoLock(f, channel.lock());
+        } catch (IOException e) {
+            throw Utils.error("Cannot lock the repository: %s",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Take the lock held in file PATH if it is free, or return null.
+     * Never waits, so that two processes each holding the lock of
+     * their own repository cannot deadlock over the other's.
+     *
+     * @param path String
+     * @return RepoLock
+     */
+    static RepoLock tryAcquire(String path) {
+        try {
+            RandomAccessFile f = new RandomAccessFile(path, "rw");
+            FileLock l;
+            try {
+                l = f.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                l = null;
+            }
+            if (l == null) {
+                f.close();
+                return null;
+            }
+            return new RepoLock(f, l);
+        } catch (IOException e) {
+            throw Utils.error("Cannot lock the repository: %s",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Give up the lock.
+     */
+    void release() {
+        try {
+            lock.release();
+            file.close();
+        } catch (IOException e) {
+            System.out.println("Cannot unlock the repository.");
+        }
+    }
+
+}
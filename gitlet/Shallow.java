@@ -0,0 +1,221 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shallow history. A shallow repository holds only the most recent
+ * commits of a source repository; the commits at the cut are listed in
+ * the graft file, one ID per line, and are treated as having no
+ * parents, so history walks stop there instead of looking for commits
+ * that were never copied.
+ *
+ * @author Tony Hsu
+ */
+class Shallow {
+
+    /**
+     * graft file, relative to a working directory.
+     */
+    static final String FILE = ".gitlet/shallow";
+
+    /**
+     * grafted commits of the current repository, once read.
+     */
+    private static Set<String> grafts;
+
+    /**
+     * Return whether commit ID is at the shallow boundary of the
+     * current repository.
+     *
+     * @param id String
+     * @return boolean
+     */
+    static synchronized boolean isGrafted(String id) {
+        if (grafts == null) {
+            grafts = read(new File(FILE));
+        }
+        return grafts.contains(id);
+    }
+
+    /**
+     * Return the first parent of CUR, or null if it has none or is
+     * grafted.
+     *
+     * @param cur Commit
+     * @return String
+     */
+    static String parent(Commit cur) {
+        return isGrafted(cur.getSHA1ID()) ? null : cur.getParent();
+    }
+
+    /**
+     * Return the parents of CUR present in the current repository.
+     *
+     * @param cur Commit
+     * @return List
+     */
+    static List<String> parents(Commit cur) {
+        return parents(cur, isGrafted(cur.getSHA1ID()));
+    }
+
+    /**
+     * Add IDS to graft file GRAFTFILE, skipping those already listed.
+     *
+     * @param graftFile File
+     * @param ids       Collection
+     */
+    static void addGrafts(File graftFile, Collection<String> ids) {
+        Set<String> all = read(graftFile);
+        if (all.addAll(ids)) {
+            Utils.writeContents(graftFile, String.join("\n", all) + "\n");
+        }
+        reset();
+    }
+
+    /**
+     * Forget the grafts read so far, as when changing repositories.
+     */
+    static synchronized void reset() {
+        grafts = null;
+    }
+
+    /**
+     * Copy into the current, empty repository the commits of the
+     * repository in directory SOURCE that are at most DEPTH
+     * generations from a commit in HEADS, along with their files, and
+     * record the cut in the graft file. Returns the number of commits
+     * copied.
+     *
+     * @param source String
+     * @param heads  Collection
+     * @param depth  int
+     * @return int
+     */
+    static int copy(String source, Collection<String> heads, int depth) {
+        ObjectStore fromCommits = new LooseObjectStore(
+                new File(source, Storage.COMMITS_DIR).getPath() + "/");
+        ObjectStore fromBlobs = new LooseObjectStore(
+                new File(source, Storage.BLOBS_DIR).getPath() + "/");
+        Set<String> sourceGrafts = read(new File(source, FILE));
+        Set<String> copied = new HashSet<>();
+        List<Commit> commits = new ArrayList<>();
+        List<String> frontier = new ArrayList<>(heads);
+        for (int level = 1; level <= depth && !frontier.isEmpty();
+             level += 1) {
+            List<String> next = new ArrayList<>();
+            for (String id : frontier) {
+                byte[] data = fromCommits.get(id);
+                if (data == null || !copied.add(id)) {
+                    continue;
+                }
+                Storage.commits().put(id, data);
+                Commit cur = Utils.deserialize(data, Commit.class);
+                commits.add(cur);
+                for (String blob : cur.getBlobs().values()) {
+                    copyBlob(fromBlobs, blob);
+                }
+                next.addAll(parents(cur, sourceGrafts.contains(id)));
+            }
+            frontier = next;
+        }
+        Set<String> cut = new HashSet<>();
+        for (Commit cur : commits) {
+            if (sourceGrafts.contains(cur.getSHA1ID())
+                    || !copied.containsAll(parents(cur, false))) {
+                cut.add(cur.getSHA1ID());
+            }
+        }
+        if (!cut.isEmpty()) {
+            addGrafts(new File(FILE), cut);
+        }
+        reset();
+        commits.sort(Comparator.comparing(Commit::getTime));
+        MetaIndex meta = Storage.meta();
+        for (Commit cur : commits) {
+            if (meta != null) {
+                meta.recordCommit(cur);
+            }
+            GlobalLog.append(cur);
+        }
+        return commits.size();
+    }
+
+    /**
+     * Copy blob ID, and its chunks if it has any, from FROM into the
+     * current repository.
+     *
+     * @param from ObjectStore
+     * @param id   String
+     */
+    private static void copyBlob(ObjectStore from, String id) {
+        ObjectStore to = Storage.blobs();
+        if (to.exists(id)) {
+            return;
+        }
+        byte[] data = from.get(id);
+        if (data == null) {
+            return;
+        }
+        to.put(id, data);
+        List<String> chunks = Blobs.chunks(id);
+        if (chunks == null) {
+            return;
+        }
+        for (String chunk : chunks) {
+            copyBlob(from, chunk);
+        }
+        MetaIndex meta = Storage.meta();
+        if (meta != null) {
+            meta.recordManifest(id);
+        }
+    }
+
+    /**
+     * Return the parents of CUR, or none if GRAFTED.
+     *
+     * @param cur     Commit
+     * @param grafted boolean
+     * @return List
+     */
+    static List<String> parents(Commit cur, boolean grafted) {
+        List<String> result = new ArrayList<>();
+        if (grafted) {
+            return result;
+        }
+        for (String parent : new String[] {cur.getParent(),
+            cur.getMergeParent()}) {
+            if (parent != null) {
+                result.add(parent);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the commit IDs listed in graft file GRAFTFILE, which may
+     * not exist.
+     *
+     * @param graftFile File
+     * @return Set
+     */
+    static Set<String> read(File graftFile) {
+        Set<String> result = new HashSet<>();
+        if (!graftFile.isFile()) {
+            return result;
+        }
+        for (String line
+                : Utils.readContentsAsString(graftFile).split("\n")) {
+            if (!line.isEmpty()) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+}
@@ -2,13 +2,12 @@ package gitlet;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.file.Files;
 import java.io.File;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.TreeMap;
-import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import java.util.concurrent.Future;
 
 /**
  * Stage class that deals with staging operations.
@@ -22,6 +21,9 @@ public class Stages implements Serializable {
     /**
      * files that will be checked out. */
     private TreeMap<String, String> mergeCheckOutFiles;
+    /**
+     * conflicting files and their current and given blob IDs. */
+    private TreeMap<String, String[]> mergeConflicts;
     /**
      * newest commit. */
     private Commit newestCommit;
@@ -29,8 +31,8 @@ public class Stages implements Serializable {
      * files that should be untracked. */
     private TreeSet<String> removingFiles;
     /**
-     * path to blobs. */
-    private String blobsDirectory = ".gitlet/blobs/";
+     * Serialization version, unchanged since the first release. */
+    private static final long serialVersionUID = 7541554471375592657L;
 
     /**
      * Constructor for stage class.
@@ -46,6 +48,7 @@ public class Stages implements Serializable {
      * initializes the merge checkout process. */
     public void initMerge() {
         mergeCheckOutFiles = new TreeMap<>();
+        mergeConflicts = new TreeMap<>();
     }
 
     /**
@@ -56,39 +59,97 @@ public class Stages implements Serializable {
         return mergeCheckOutFiles;
     }
 
+    /**
+     * return the conflicting files planned by a merge, each mapped
+     * to its current and given blob IDs (either may be null).
+     * @return TreeMap
+     * */
+    public TreeMap<String, String[]> getMergeConflicts() {
+        return mergeConflicts;
+    }
+
     /**
      * add files to the staging area.
      * @param name String
      * */
     public void add(String name) {
-        File file = new File(name);
-        if (!file.exists()) {
+        if (!new File(name).exists()) {
             System.out.println("File does not exist.");
             return;
         }
-        if (newestCommit.contains(name)) {
-            if (!hasChangedFromLast(name)) {
-                if (stagedFiles.containsKey(name)) {
-                    stagedFiles.remove(name);
-                }
-                if (removingFiles.contains(name)) {
-                    removingFiles.remove(name);
-                }
-                return;
+        try {
+            stage(name, store(name));
+        } catch (IOException e) {
+            System.out.println("IOException");
+        }
+    }
+
+    /**
+     * add files NAMES, which exist, to the staging area. Their blobs
+     * are hashed and stored through a WritePipeline, several at a
+     * time, and staged in order once all are written. Returns whether
+     * they were; if any cannot be stored, none is staged.
+     * @param names List
+     * @return boolean
+     * */
+    public boolean addAll(List<String> names) {
+        List<Future<String>> pending = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        try (WritePipeline pipeline = new WritePipeline()) {
+            for (String name : names) {
+                pending.add(pipeline.submit(() -> store(name)));
+            }
+            for (Future<String> id : pending) {
+                ids.add(WritePipeline.result(id));
             }
+        } catch (IOException e) {
+            System.out.println("IOException");
+            return false;
         }
+        for (int i = 0; i < names.size(); i += 1) {
+            stage(names.get(i), ids.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * Return the blob ID of file NAME, storing its blob unless it is
+     * the one in the newest commit. Touches no staging state, so may
+     * run on any thread.
+     * @param name String
+     * @return String
+     * @throws IOException if the file cannot be read
+     * */
+    private String store(String name) throws IOException {
+        File file = new File(name);
+        String fileSha;
+        try {
+            fileSha = Blobs.id(file, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        if (!fileSha.equals(newestCommit.getBlobsID(name))) {
+            Blobs.store(file, fileSha);
+        }
+        return fileSha;
+    }
+
+    /**
+     * Stage file NAME, whose blob ID is FILESHA and already stored.
+     * @param name String
+     * @param fileSha String
+     * */
+    private void stage(String name, String fileSha) {
         if (removingFiles.contains(name)) {
             removingFiles.remove(name);
         }
-        String fileSha = Utils.sha1(Utils.readContents(file), name);
-        File gitletFile = new File(blobsDirectory + fileSha);
-        try {
-            Files.copy(file.toPath(), gitletFile.toPath(),
-                    COPY_ATTRIBUTES, REPLACE_EXISTING);
-            stagedFiles.put(name, fileSha);
-        } catch (IOException e) {
-            System.out.println("IOException");
+        if (fileSha.equals(newestCommit.getBlobsID(name))) {
+            if (stagedFiles.containsKey(name)) {
+                stagedFiles.remove(name);
+            }
+            return;
         }
+        stagedFiles.put(name, fileSha);
     }
 
     /**
@@ -129,10 +190,9 @@ public class Stages implements Serializable {
             stagedFiles.remove(name);
         }
         if (newestCommit.contains(name)) {
-            File file = new File(name);
             removingFiles.add(name);
-            if (file.exists()) {
-                Utils.restrictedDelete(file);
+            if (new File(name).exists()) {
+                WorkTree.delete(name);
             }
         }
     }
@@ -143,13 +203,8 @@ public class Stages implements Serializable {
      * @return boolean
      * */
     public boolean hasChangedFromLast(String name) {
-        File cur = new File(name);
-        String oldLocation = blobsDirectory
-                + getNewestCommit().getBlobs().get(name);
-        File old = new File(oldLocation);
-        byte[] curContents = Utils.readContents(cur);
-        byte[] oldContents = Utils.readContents(old);
-        return !Arrays.equals(curContents, oldContents);
+        return !Blobs.id(new File(name), name).equals(
+                getNewestCommit().getBlobsID(name));
     }
 
 
@@ -0,0 +1,137 @@
+package gitlet;
+
+import java.io.IOException;
+
+/**
+ * Access point for the object stores of the current repository. By
+ * default these are loose-file stores under .gitlet; tests and
+ * benchmarks may install other backends with use.
+ *
+ * @author Tony Hsu
+ */
+class Storage {
+
+    /**
+     * path to blobs.
+     */
+    static final String BLOBS_DIR = ".gitlet/blobs/";
+    /**
+     * path to commits.
+     */
+    static final String COMMITS_DIR = ".gitlet/commits/";
+
+    /**
+     * blob store in use.
+     */
+    private static ObjectStore blobs = new LooseObjectStore(BLOBS_DIR);
+    /**
+     * commit store in use.
+     */
+    private static ObjectStore commits = new LooseObjectStore(COMMITS_DIR);
+    /**
+     * open metadata index, if any.
+     */
+    private static MetaIndex meta;
+    /**
+     * whether the metadata index has been looked for.
+     */
+    private static boolean metaChecked;
+
+    /**
+     * Return the blob store.
+     *
+     * @return ObjectStore
+     */
+    static ObjectStore blobs() {
+        return blobs;
+    }
+
+    /**
+     * Return the commit store.
+     *
+     * @return ObjectStore
+     */
+    static ObjectStore commits() {
+        return commits;
+    }
+
+    /**
+     * Return the metadata index of the repository, or null if the
+     * repository does not keep one.
+     *
+     * @return MetaIndex
+     */
+    static synchronized MetaIndex meta() {
+        if (!metaChecked) {
+            metaChecked = true;
+            if (KVStore.exists(MetaIndex.BASE)) {
+                meta = new MetaIndex(MetaIndex.BASE);
+            }
+        }
+        return meta;
+    }
+
+    /**
+     * Create the metadata index of the repository if it has none.
+     *
+     * @return MetaIndex
+     */
+    static MetaIndex enableMeta() {
+        closeMeta();
+        metaChecked = true;
+        KVStore.create(MetaIndex.BASE);
+        meta = new MetaIndex(MetaIndex.BASE);
+        return meta;
+    }
+
+    /**
+     * Make every object stored so far durable. Called once, before the
+     * repository state that refers to the objects is saved.
+     *
+     * @throws IOException if an object cannot be flushed
+     */
+    static void sync() throws IOException {
+        blobs.sync();
+        commits.sync();
+    }
+
+    /**
+     * Flush and close the metadata index, if open.
+     */
+    static synchronized void closeMeta() {
+        if (meta != null) {
+            meta.close();
+            meta = null;
+        }
+        metaChecked = false;
+    }
+
+    /**
+     * Use BLOBSTORE and COMMITSTORE for all further object I/O,
+     * without a metadata index.
+     *
+     * @param blobStore   ObjectStore
+     * @param commitStore ObjectStore
+     */
+    static void use(ObjectStore blobStore, ObjectStore commitStore) {
+        closeMeta();
+        metaChecked = true;
+        blobs = blobStore;
+        commits = commitStore;
+        MergeBase.reset();
+    }
+
+    /**
+     * Go back to the loose-file stores of the current directory.
+     */
+    static void reset() {
+        use(new LooseObjectStore(BLOBS_DIR),
+                new LooseObjectStore(COMMITS_DIR));
+        metaChecked = false;
+        Shallow.reset();
+        UntrackedCache.reset();
+        IgnoreMatcher.reset();
+        DirtyTracker.reset();
+    }
+
+}
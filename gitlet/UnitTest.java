@@ -47,6 +47,7 @@ public class UnitTest {
         File file = new File(GIT_DIRECTORY);
         if (!file.exists()) {
             Main.init();
+            Storage.closeMeta();
             assertTrue(file.exists());
             deleteDirectory(file);
             assertTrue(!file.exists());
@@ -222,10 +223,586 @@ public class UnitTest {
         main.commit("hello");
     }
 
+    @Test
+    public void memoryStoreTest() {
+        MemoryObjectStore blobs = new MemoryObjectStore();
+        MemoryObjectStore commits = new MemoryObjectStore();
+        Storage.use(blobs, commits);
+        try {
+            Commit first = new Commit("initial commit", new Timestamp(0),
+                    null);
+            Git main = Git.gitInit(first);
+            assertEquals(1, commits.size());
+            assertEquals(first.getSHA1ID(),
+                    main.commitIDExists(first.getSHA1ID().substring(0, 6)));
+            assertEquals(first.getSHA1ID(),
+                    Git.deserializeCommit(first.getSHA1ID()).getSHA1ID());
+            blobs.put("abc", new byte[] {1, 2});
+            assertTrue(blobs.exists("abc"));
+            assertEquals(1, blobs.idsWithPrefix("ab").size());
+            assertEquals(0, blobs.idsWithPrefix("b").size());
+            assertTrue(blobs.delete("abc"));
+            assertNull(blobs.get("abc"));
+        } finally {
+            Storage.reset();
+        }
+    }
+
+    @Test
+    public void kvStoreTest() throws java.io.IOException {
+        File dir = java.nio.file.Files.createTempDirectory("kv").toFile();
+        String base = new File(dir, "meta").getPath();
+        try {
+            KVStore kv = new KVStore(base);
+            for (int i = 0; i < 100; i += 1) {
+                kv.put(String.format("c/%03d", i), "v" + i);
+            }
+            kv.put("r/master", "x");
+            kv.compact();
+            kv.put("c/050", "changed");
+            kv.delete("c/051");
+            kv.put("c/100", "new");
+            kv.close();
+
+            kv = new KVStore(base);
+            assertEquals("v7", kv.get("c/007"));
+            assertEquals("changed", kv.get("c/050"));
+            assertNull(kv.get("c/051"));
+            assertEquals("x", kv.get("r/master"));
+            assertEquals(9, kv.scan("c/05").size());
+            assertEquals(100, kv.scan("c/").size());
+            assertEquals("c/000", kv.scan("c/", 3).firstKey());
+            assertEquals(3, kv.scan("c/", 3).size());
+            kv.compact();
+            assertNull(kv.get("c/051"));
+            assertEquals("new", kv.get("c/100"));
+            assertEquals(1, kv.scan("r/").size());
+            kv.close();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void kvStoreTornLogTest() throws java.io.IOException {
+        File dir = java.nio.file.Files.createTempDirectory("kv").toFile();
+        String base = new File(dir, "meta").getPath();
+        File logFile = new File(base + ".log");
+        try {
+            KVStore kv = new KVStore(base);
+            kv.put("a", "1");
+            kv.put("b", "2");
+            kv.close();
+            long whole = logFile.length();
+            try (java.io.FileOutputStream out =
+                         new java.io.FileOutputStream(logFile, true)) {
+                out.write(new byte[] {1, 0, 0, 0, 3, 'c'});
+            }
+            kv = new KVStore(base);
+            assertEquals("2", kv.get("b"));
+            kv.close();
+            assertEquals(whole + 6, logFile.length());
+            kv = new KVStore(base);
+            kv.put("d", "4");
+            kv.close();
+            kv = new KVStore(base);
+            kv.put("e", "5");
+            kv.close();
+
+            kv = new KVStore(base);
+            assertEquals("1", kv.get("a"));
+            assertEquals("2", kv.get("b"));
+            assertNull(kv.get("c"));
+            assertEquals("4", kv.get("d"));
+            assertEquals("5", kv.get("e"));
+            kv.close();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
 
+    @Test
+    public void looseStoreTimeTest() throws java.io.IOException {
+        File dir = java.nio.file.Files.createTempDirectory("objs").toFile();
+        File file = new File(dir, "old.txt");
+        try {
+            Utils.writeContents(file, "old");
+            file.setLastModified(System.currentTimeMillis() - 86400000L * 30);
+            ObjectStore store = new LooseObjectStore(dir.getPath() + "/");
+            String id = Utils.sha1("old");
+            long before = System.currentTimeMillis() - 60000;
+            store.putFile(id, file);
+            assertTrue(store.lastModified(id) > before);
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
 
+    @Test
+    public void chunkedBlobTest() throws java.io.IOException {
+        Storage.use(new MemoryObjectStore(), new MemoryObjectStore());
+        File file = File.createTempFile("large", ".bin");
+        File out = File.createTempFile("restored", ".bin");
+        try {
+            byte[] data = new byte[(int) Blobs.LARGE_FILE + 12345];
+            new java.util.Random(1).nextBytes(data);
+            Utils.writeContents(file, data);
+            String first = Blobs.id(file, "large.bin");
+            Blobs.store(file, first);
+            java.util.List<String> before = Blobs.chunks(first);
+            assertTrue(before.size() > 1);
+
+            data[data.length / 2] += 1;
+            Utils.writeContents(file, data);
+            String second = Blobs.id(file, "large.bin");
+            assertNotEquals(first, second);
+            Blobs.store(file, second);
+            java.util.List<String> after = Blobs.chunks(second);
+            java.util.Set<String> shared = new java.util.HashSet<>(before);
+            shared.retainAll(after);
+            assertTrue(shared.size() >= before.size() - 2);
+
+            Blobs.restore(second, out);
+            assertArrayEquals(data, Utils.readContents(out));
+            assertArrayEquals(data, Blobs.read(second));
+            assertNull(Blobs.chunks(before.get(0)));
+        } finally {
+            file.delete();
+            out.delete();
+            Storage.reset();
+        }
+    }
 
+    @Test
+    public void pathTableTest() {
+        String a = Utils.sha1("a");
+        String b = Utils.sha1("b");
+        java.util.HashMap<String, String> before = new java.util.HashMap<>();
+        before.put("same.txt", a);
+        before.put("changed.txt", a);
+        before.put("gone.txt", b);
+        java.util.HashMap<String, String> after = new java.util.HashMap<>();
+        after.put("same.txt", a);
+        after.put("changed.txt", b);
+        after.put("new.txt", b);
+        PathTable old = PathTable.of(before);
+        PathTable cur = PathTable.of(after, true);
+        assertEquals(3, cur.size());
+        assertEquals("changed.txt", cur.path(0));
+        assertEquals(b, cur.get("changed.txt"));
+        assertNull(cur.get("gone.txt"));
+        assertEquals(java.util.Arrays.asList("changed.txt", "gone.txt",
+                "new.txt"), PathTable.diff(old, cur));
+        assertEquals(0, PathTable.diff(cur, cur).size());
+    }
 
-}
+    @Test
+    public void mergeClassifierTest() {
+        String[] ids = {null, Utils.sha1("a"), Utils.sha1("b")};
+        java.util.HashMap<String, String> split = new java.util.HashMap<>();
+        java.util.HashMap<String, String> cur = new java.util.HashMap<>();
+        java.util.HashMap<String, String> given = new java.util.HashMap<>();
+        for (int i = 0; i < 27; i += 1) {
+            String name = "f" + i;
+            if (ids[i % 3] != null) {
+                split.put(name, ids[i % 3]);
+            }
+            if (ids[i / 3 % 3] != null) {
+                cur.put(name, ids[i / 3 % 3]);
+            }
+            if (ids[i / 9] != null) {
+                given.put(name, ids[i / 9]);
+            }
+        }
+        Stages expected = new Stages(null);
+        expected.initMerge();
+        Stages actual = new Stages(null);
+        actual.initMerge();
+        assertEquals(Benchmark.classifyByLookup(split, cur, given, expected),
+                MergeClassifier.classify(PathTable.of(split),
+                        PathTable.of(cur), PathTable.of(given), actual));
+        assertTrue(Benchmark.samePlan(expected, actual));
+        assertTrue(actual.getMergeConflicts().size() > 0);
+    }
+
+    @Test
+    public void shallowCopyTest() throws java.io.IOException {
+        File source = java.nio.file.Files.createTempDirectory("src").toFile();
+        boolean hadRepo = new File(GIT_DIRECTORY).exists();
+        ObjectStore srcCommits = new LooseObjectStore(
+                new File(source, Storage.COMMITS_DIR).getPath() + "/");
+        ObjectStore srcBlobs = new LooseObjectStore(
+                new File(source, Storage.BLOBS_DIR).getPath() + "/");
+        MemoryObjectStore blobs = new MemoryObjectStore();
+        MemoryObjectStore commits = new MemoryObjectStore();
+        try {
+            Commit cur = new Commit("initial commit", new Timestamp(0), null);
+            srcCommits.put(cur.getSHA1ID(), Utils.serialize(cur));
+            java.util.List<String> ids = new java.util.ArrayList<>();
+            for (int i = 1; i <= 3; i += 1) {
+                Stages stage = new Stages(cur);
+                String blob = Utils.sha1("version " + i);
+                srcBlobs.put(blob, ("version " + i).getBytes());
+                stage.getStagedFiles().put("a.txt", blob);
+                cur = new Commit(stage, "commit " + i);
+                srcCommits.put(cur.getSHA1ID(), Utils.serialize(cur));
+                ids.add(cur.getSHA1ID());
+            }
+            Storage.use(blobs, commits);
+            assertEquals(2, Shallow.copy(source.getPath(),
+                    java.util.Collections.singleton(ids.get(2)), 2));
+            assertEquals(2, commits.size());
+            assertEquals(2, blobs.size());
+            assertTrue(Shallow.isGrafted(ids.get(1)));
+            assertFalse(Shallow.isGrafted(ids.get(2)));
+            int walked = 0;
+            for (LogWalker w = new LogWalker(ids.get(2)); w.hasNext();
+                 w.next()) {
+                walked += 1;
+            }
+            assertEquals(2, walked);
+        } finally {
+            new File(Shallow.FILE).delete();
+            Storage.reset();
+            deleteDirectory(source);
+            if (!hadRepo) {
+                deleteDirectory(new File(GIT_DIRECTORY));
+            }
+        }
+    }
+
+    @Test
+    public void mergeBaseTest() {
+        java.util.Map<String, java.util.List<String>> parents =
+                new java.util.HashMap<>();
+        parents.put("root", java.util.Arrays.asList());
+        parents.put("a1", java.util.Arrays.asList("root"));
+        parents.put("b1", java.util.Arrays.asList("root"));
+        parents.put("a2", java.util.Arrays.asList("a1", "b1"));
+        parents.put("b2", java.util.Arrays.asList("b1", "a1"));
+        parents.put("a3", java.util.Arrays.asList("a2"));
+        parents.put("other", java.util.Arrays.asList());
+        MergeBase bases = new MergeBase(parents::get, false);
+        assertEquals(java.util.Arrays.asList("a1", "b1"),
+                bases.bases("a3", "b2"));
+        assertEquals(java.util.Arrays.asList("a2"), bases.bases("a3", "a2"));
+        assertEquals(java.util.Arrays.asList("root"),
+                bases.bases("a1", "b1"));
+        assertTrue(bases.bases("a3", "other").isEmpty());
+        assertEquals(4, bases.generation("a3"));
+        assertTrue(bases.isAncestor("b1", "a3"));
+        assertFalse(bases.isAncestor("b2", "a3"));
+    }
+
+    @Test
+    public void untrackedCacheTest() throws java.io.IOException {
+        File dir = java.nio.file.Files.createTempDirectory("wd").toFile();
+        try {
+            Utils.writeContents(new File(dir, "a.txt"), "a");
+            java.nio.file.attribute.FileTime old =
+                    java.nio.file.attribute.FileTime.fromMillis(1000000);
+            java.nio.file.Files.setLastModifiedTime(dir.toPath(), old);
+            UntrackedCache.reset();
+            assertEquals(java.util.Arrays.asList("a.txt"),
+                    UntrackedCache.listing(dir.getPath()).files());
+            Utils.writeContents(new File(dir, "b.txt"), "b");
+            java.nio.file.Files.setLastModifiedTime(dir.toPath(), old);
+            assertEquals(java.util.Arrays.asList("a.txt"),
+                    UntrackedCache.listing(dir.getPath()).files());
+            java.nio.file.Files.setLastModifiedTime(dir.toPath(),
+                    java.nio.file.attribute.FileTime.fromMillis(2000000));
+            assertEquals(java.util.Arrays.asList("a.txt", "b.txt"),
+                    UntrackedCache.listing(dir.getPath()).files());
+        } finally {
+            UntrackedCache.reset();
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void workTreeTest() {
+        File gitlet = new File(GIT_DIRECTORY);
+        boolean hadRepo = gitlet.isDirectory();
+        StringBuilder deep = new StringBuilder("deep");
+        for (int i = 0; i < 40; i += 1) {
+            deep.append("/d").append(i);
+        }
+        try {
+            gitlet.mkdirs();
+            new File(deep.toString()).mkdirs();
+            new File("deep/build/out").mkdirs();
+            Utils.writeContents(new File(deep + "/leaf.txt"), "leaf");
+            Utils.writeContents(new File("deep/top.txt"), "top");
+            Utils.writeContents(new File("deep/build/out/a.class"), "x");
+            Utils.writeContents(new File(WorkTree.IGNORE_FILE),
+                    "# build output\nbuild/\n");
+            assertEquals(java.util.Arrays.asList(deep + "/leaf.txt",
+                    "deep/top.txt"), WorkTree.files("deep"));
+            assertEquals("deep/top.txt",
+                    WorkTree.normalize("./deep/d0/../top.txt"));
+            assertNull(WorkTree.normalize("../outside.txt"));
+            assertNull(WorkTree.normalize(".gitlet/mainControl.file"));
+            assertTrue(WorkTree.delete(deep + "/leaf.txt"));
+            assertFalse(new File("deep/d0").exists());
+            assertTrue(new File("deep/top.txt").exists());
+        } finally {
+            new File(WorkTree.IGNORE_FILE).delete();
+            deleteDirectory(new File("deep"));
+            if (!hadRepo) {
+                deleteDirectory(gitlet);
+            }
+        }
+    }
+
+    @Test
+    public void ignoreMatcherTest() {
+        IgnoreMatcher m = IgnoreMatcher.compile(java.util.Arrays.asList(
+                "# comment", "target/", "node_modules", "*.class",
+                "!Keep.class", "/docs/*.tmp", "**/cache/**", "log[0-9].txt",
+                "\\#literal", "build?"));
+        assertTrue(m.isIgnored("a/target", "target", true));
+        assertFalse(m.isIgnored("a/target", "target", false));
+        assertTrue(m.isIgnored("x/node_modules", "node_modules", true));
+        assertTrue(m.isIgnored("src/A.class", "A.class", false));
+        assertFalse(m.isIgnored("src/Keep.class", "Keep.class", false));
+        assertTrue(m.isIgnored("docs/a.tmp", "a.tmp", false));
+        assertFalse(m.isIgnored("src/docs/a.tmp", "a.tmp", false));
+        assertTrue(m.isIgnored("a/cache/b/c.txt", "c.txt", false));
+        assertFalse(m.isIgnored("a/cache", "cache", true));
+        assertTrue(m.isIgnored("log3.txt", "log3.txt", false));
+        assertFalse(m.isIgnored("logx.txt", "logx.txt", false));
+        assertTrue(m.isIgnored("#literal", "#literal", false));
+        assertTrue(m.isIgnored("build1", "build1", true));
+        assertFalse(m.isIgnored("build", "build", true));
+        assertFalse(m.isIgnored("src/Main.java", "Main.java", false));
+    }
+
+    @Test
+    public void watcherTest() throws Exception {
+        File gitlet = new File(GIT_DIRECTORY);
+        boolean hadRepo = gitlet.isDirectory();
+        File dir = new File("watched");
+        Watcher watcher = new Watcher();
+        Thread thread = new Thread(() -> {
+            try {
+                watcher.run(20000);
+            } catch (java.io.IOException e) {
+                return;
+            }
+        });
+        try {
+            gitlet.mkdirs();
+            dir.mkdirs();
+            thread.start();
+            for (int i = 0; i < 500 && !new File(DirtyTracker.TOKEN).isFile();
+                 i += 1) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(5);
+            long before = System.currentTimeMillis();
+            Thread.sleep(5);
+            DirtyTracker.reset();
+            assertTrue(DirtyTracker.unchangedSince("watched", before));
+            Utils.writeContents(new File(dir, "new.txt"), "new");
+            DirtyTracker.reset();
+            assertFalse(DirtyTracker.unchangedSince("watched", before));
+            watcher.stop();
+            thread.join();
+            DirtyTracker.reset();
+            assertFalse(DirtyTracker.watching());
+        } finally {
+            watcher.stop();
+            thread.join();
+            DirtyTracker.reset();
+            deleteDirectory(dir);
+            new File(DirtyTracker.LOG).delete();
+            if (!hadRepo) {
+                deleteDirectory(gitlet);
+            }
+        }
+    }
+
+    @Test
+    public void writePipelineTest() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("objs").toFile();
+        java.util.concurrent.atomic.AtomicInteger running =
+                new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger most =
+                new java.util.concurrent.atomic.AtomicInteger();
+        ObjectStore store = new LooseObjectStore(dir.getPath() + "/");
+        java.util.List<java.util.concurrent.Future<String>> ids =
+                new java.util.ArrayList<>();
+        try (WritePipeline pipeline = new WritePipeline(2)) {
+            for (int i = 0; i < 40; i += 1) {
+                String text = "object " + i;
+                ids.add(pipeline.submit(() -> {
+                    most.accumulateAndGet(running.incrementAndGet(),
+                            Math::max);
+                    String id = Utils.sha1(text);
+                    store.put(id, text.getBytes("UTF-8"));
+                    running.decrementAndGet();
+                    return id;
+                }));
+            }
+            for (int i = 0; i < 40; i += 1) {
+                assertEquals(Utils.sha1("object " + i),
+                        WritePipeline.result(ids.get(i)));
+            }
+        }
+        try {
+            assertTrue(most.get() <= 2);
+            store.sync();
+            assertEquals("object 7", new String(store.get(
+                    Utils.sha1("object 7")), "UTF-8"));
+            assertEquals(40, store.idsWithPrefix("").size());
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
 
+    @Test
+    public void packOrderTest() throws java.io.IOException {
+        MemoryObjectStore commits = new MemoryObjectStore();
+        java.util.HashMap<String, String> none = new java.util.HashMap<>();
+        Commit root = new Commit("root", new Timestamp(0), null);
+        Commit a = new Commit("a", root.getSHA1ID(), null, none);
+        Commit b = new Commit("b", root.getSHA1ID(), null, none);
+        Commit m = new Commit("m", a.getSHA1ID(), b.getSHA1ID(), none);
+        Commit c = new Commit("c", m.getSHA1ID(), null, none);
+        for (Commit cur : new Commit[] {root, a, b, m, c}) {
+            commits.put(cur.getSHA1ID(), Utils.serialize(cur));
+        }
+        Pack pack = Pack.negotiate(commits, new MemoryObjectStore(),
+                new java.util.HashSet<>(), c.getSHA1ID(),
+                new MemoryObjectStore(), new MemoryObjectStore());
+        File file = File.createTempFile("pack", ".pack");
+        try {
+            pack.write(file);
+            java.util.List<String> order = Pack.unpack(file,
+                    new MemoryObjectStore(), new MemoryObjectStore(), null);
+            assertEquals(5, order.size());
+            assertEquals(root.getSHA1ID(), order.get(0));
+            assertTrue(order.indexOf(a.getSHA1ID())
+                    < order.indexOf(m.getSHA1ID()));
+            assertTrue(order.indexOf(b.getSHA1ID())
+                    < order.indexOf(m.getSHA1ID()));
+            assertEquals(c.getSHA1ID(), order.get(4));
+        } finally {
+            file.delete();
+        }
+    }
 
+    @Test
+    public void blameMatchTest() {
+        java.util.Random random = new java.util.Random(7);
+        for (int round = 0; round < 300; round += 1) {
+            java.util.List<String> a = new java.util.ArrayList<>();
+            java.util.List<String> b = new java.util.ArrayList<>();
+            for (int i = random.nextInt(30); i > 0; i -= 1) {
+                a.add("" + (char) ('a' + random.nextInt(4)));
+            }
+            for (int i = random.nextInt(30); i > 0; i -= 1) {
+                b.add("" + (char) ('a' + random.nextInt(4)));
+            }
+            int[] lcs = new int[b.size() + 1];
+            for (int i = 0; i < a.size(); i += 1) {
+                int diagonal = 0;
+                for (int j = 0; j < b.size(); j += 1) {
+                    int up = lcs[j + 1];
+                    lcs[j + 1] = a.get(i).equals(b.get(j)) ? diagonal + 1
+                            : Math.max(lcs[j], lcs[j + 1]);
+                    diagonal = up;
+                }
+            }
+            int[] matched = Blame.match(a, b);
+            int kept = 0;
+            int last = -1;
+            for (int j = 0; j < b.size(); j += 1) {
+                if (matched[j] >= 0) {
+                    assertTrue(matched[j] > last);
+                    assertEquals(a.get(matched[j]), b.get(j));
+                    last = matched[j];
+                    kept += 1;
+                }
+            }
+            assertEquals(lcs[b.size()], kept);
+        }
+    }
+
+    @Test
+    public void packedRefsTest() throws java.io.IOException {
+        File gitlet = new File(GIT_DIRECTORY);
+        boolean hadRepo = gitlet.isDirectory();
+        try {
+            gitlet.mkdirs();
+            for (int i = 0; i < 500; i += 1) {
+                Refs.set("v" + i, Utils.sha1("v" + i));
+            }
+            assertEquals(500, Refs.pack());
+            assertFalse(new File(Refs.DIR, "v7").exists());
+            for (int i = 0; i < 500; i += 1) {
+                assertEquals(Utils.sha1("v" + i), Refs.resolve("v" + i));
+            }
+            assertNull(Refs.resolve("a"));
+            assertNull(Refs.resolve("v10a"));
+            assertNull(Refs.resolve("w"));
+            Refs.set("v3", Utils.sha1("moved"));
+            assertEquals(Utils.sha1("moved"), Refs.resolve("v3"));
+            assertTrue(Refs.delete("v3"));
+            assertNull(Refs.resolve("v3"));
+            assertFalse(Refs.delete("v3"));
+            assertEquals(499, Refs.all().size());
+        } finally {
+            deleteDirectory(new File(Refs.DIR));
+            new File(Refs.PACKED).delete();
+            if (!hadRepo) {
+                deleteDirectory(gitlet);
+            }
+        }
+    }
+
+    @Test
+    public void reflogTest() throws java.io.IOException {
+        File gitlet = new File(GIT_DIRECTORY);
+        boolean hadRepo = gitlet.isDirectory();
+        try {
+            gitlet.mkdirs();
+            for (int i = 0; i < 999; i += 1) {
+                Reflog.append(Reflog.DIR, "a/b", i == 0 ? null
+                        : Utils.sha1("" + (i - 1)), Utils.sha1("" + i),
+                        Reflog.COMMIT);
+            }
+            assertEquals(999 * Reflog.RECORD,
+                    new File(Reflog.DIR, "a%2Fb").length());
+            try (java.io.FileOutputStream out = new java.io.FileOutputStream(
+                    new File(Reflog.DIR, "a%2Fb"), true)) {
+                out.write(new byte[Reflog.RECORD / 2]);
+            }
+            Reflog.append(Reflog.DIR, "a/b", Utils.sha1("998"),
+                    Utils.sha1("999"), Reflog.COMMIT);
+            assertEquals(1000 * Reflog.RECORD,
+                    new File(Reflog.DIR, "a%2Fb").length());
+            java.util.List<Reflog.Entry> tail = Reflog.read("a/b", 3);
+            assertEquals(3, tail.size());
+            assertEquals(Utils.sha1("999"), tail.get(0).newID);
+            assertEquals(Utils.sha1("998"), tail.get(0).oldID);
+            assertEquals(Utils.sha1("997"), tail.get(2).newID);
+            assertEquals("commit", tail.get(0).opName());
+            assertNull(Reflog.read("a/b", 1000).get(999).oldID);
+            assertTrue(Reflog.ids().contains(Utils.sha1("0")));
+            Reflog.expire(0);
+            assertEquals(1000, Reflog.read("a/b", 2000).size());
+            Reflog.expire(tail.get(0).time + 1);
+            assertTrue(Reflog.read("a/b", 1).isEmpty());
+            assertFalse(Reflog.ids().contains(Utils.sha1("999")));
+            Reflog.delete("a/b");
+            assertFalse(new File(Reflog.DIR, "a%2Fb").exists());
+        } finally {
+            deleteDirectory(new File(Reflog.DIR));
+            if (!hadRepo) {
+                deleteDirectory(gitlet);
+            }
+        }
+    }
+
+}
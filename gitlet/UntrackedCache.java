@@ -0,0 +1,234 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached listings of the plain files and subdirectories of working
+ * directories, keyed by each directory's modification time. Creating,
+ * deleting or renaming a file changes the time of its directory, so
+ * while the time is the same the listing is still right and the
+ * directory need not be read.
+ * A listing taken within a second or two of the directory's last
+ * change is not kept, since a change in the same clock tick would go
+ * unnoticed. Which of the files are untracked is decided by the
+ * caller against the head and staged files, so staging never makes a
+ * listing stale. Directories may be listed from several threads.
+ *
+ * While a watcher runs, a listing taken after it started is used
+ * without even reading the directory's time, as long as DirtyTracker
+ * has seen no change to the directory's entries since.
+ *
+ * @author Tony Hsu
+ */
+class UntrackedCache {
+
+    /**
+     * cache file, relative to a working directory.
+     */
+    static final String FILE = ".gitlet/untracked";
+    /**
+     * nanoseconds after a directory changes before its listing is kept.
+     */
+    private static final long RACY = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * The plain files and subdirectories of a directory at one
+     * modification time.
+     */
+    static class Listing implements Serializable {
+        /**
+         * Serialization version. */
+        private static final long serialVersionUID = 3L;
+        /**
+         * modification time of the directory, in nanoseconds.
+         */
+        private long mtime;
+        /**
+         * time the directory was read, in milliseconds.
+         */
+        private long listedAt;
+        /**
+         * names of its plain files, sorted.
+         */
+        private String[] names;
+        /**
+         * names of its subdirectories, sorted.
+         */
+        private String[] dirs;
+
+        /**
+         * Listing constructor.
+         *
+         * @param time        long
+         * @param listed      long
+         * @param files       String[]
+         * @param directories String[]
+         */
+        Listing(long time, long listed, String[] files,
+                String[] directories) {
+            mtime = time;
+            listedAt = listed;
+            names = files;
+            dirs = directories;
+        }
+
+        /**
+         * Return the names of the plain files, in lexicographic order.
+         *
+         * @return List
+         */
+        List<String> files() {
+            return Collections.unmodifiableList(Arrays.asList(names));
+        }
+
+        /**
+         * Return the names of the subdirectories, in lexicographic
+         * order.
+         *
+         * @return List
+         */
+        List<String> directories() {
+            return Collections.unmodifiableList(Arrays.asList(dirs));
+        }
+    }
+
+    /**
+     * listings of the current repository, once read, by directory.
+     */
+    private static ConcurrentHashMap<String, Listing> listings;
+    /**
+     * whether listings has changed since it was read.
+     */
+    private static volatile boolean dirty;
+
+    /**
+     * Return the listing of directory DIR, reading it only if it
+     * changed since last listed, or null if it is not a directory.
+     *
+     * @param dir String
+     * @return Listing
+     */
+    static Listing listing(String dir) {
+        load();
+        Listing cached = listings.get(dir);
+        if (cached != null
+                && DirtyTracker.unchangedSince(dir, cached.listedAt)) {
+            return cached;
+        }
+        long mtime = mtime(new File(dir));
+        if (cached != null && cached.mtime == mtime && mtime != 0) {
+            return cached;
+        }
+        Listing result = read(new File(dir), mtime);
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        if (result != null && mtime != 0 && mtime + RACY < now) {
+            listings.put(dir, result);
+            dirty = true;
+        } else if (cached != null) {
+            listings.remove(dir);
+            dirty = true;
+        }
+        return result;
+    }
+
+    /**
+     * Read directory DIR, whose modification time is MTIME, or return
+     * null if it cannot be read.
+     *
+     * @param dir   File
+     * @param mtime long
+     * @return Listing
+     */
+    private static Listing read(File dir, long mtime) {
+        long listed = System.currentTimeMillis();
+        List<String> files = new ArrayList<>();
+        List<String> dirs = new ArrayList<>();
+        try (DirectoryStream<Path> entries =
+                     Files.newDirectoryStream(dir.toPath())) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (Files.isRegularFile(entry)) {
+                    files.add(name);
+                } else if (Files.isDirectory(entry)) {
+                    dirs.add(name);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Collections.sort(files);
+        Collections.sort(dirs);
+        return new Listing(mtime, listed, files.toArray(new String[0]),
+                dirs.toArray(new String[0]));
+    }
+
+    /**
+     * Write the listings taken by this command, if any changed.
+     */
+    static synchronized void save() {
+        if (dirty && listings != null
+                && new File(FILE).getParentFile().isDirectory()) {
+            Utils.writeContents(new File(FILE), Utils.serialize(listings));
+        }
+        dirty = false;
+    }
+
+    /**
+     * Forget the listings read so far, as when changing repositories.
+     */
+    static synchronized void reset() {
+        listings = null;
+        dirty = false;
+    }
+
+    /**
+     * Read the listings of the current repository if not read yet. A
+     * missing or unreadable cache file counts as empty.
+     */
+    @SuppressWarnings("unchecked")
+    private static synchronized void load() {
+        if (listings != null) {
+            return;
+        }
+        File file = new File(FILE);
+        if (file.isFile()) {
+            try {
+                listings = Utils.deserialize(Utils.readContents(file),
+                        ConcurrentHashMap.class);
+            } catch (IllegalArgumentException e) {
+                listings = null;
+            }
+        }
+        if (listings == null) {
+            listings = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Return the modification time of DIR in nanoseconds, or 0 if it
+     * cannot be read.
+     *
+     * @param dir File
+     * @return long
+     */
+    private static long mtime(File dir) {
+        try {
+            return Files.getLastModifiedTime(dir.toPath())
+                    .to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+}
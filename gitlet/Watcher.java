@@ -0,0 +1,204 @@
+package gitlet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A long-lived process that watches every directory of the working
+ * tree that is not ignored and logs each change for DirtyTracker, so
+ * that other commands need only look again at what changed. New
+ * directories are watched as they appear. When the system drops
+ * events, or the ignore file changes and other directories may need
+ * watching, the watcher logs that everything must be rescanned. Only
+ * cookie files are logged from .gitlet itself.
+ *
+ * @author Tony Hsu
+ */
+class Watcher {
+
+    /**
+     * milliseconds between checks for the end of a timed run.
+     */
+    private static final long TICK = 100;
+
+    /**
+     * the watch service.
+     */
+    private WatchService service;
+    /**
+     * the directory of each watch key, as a working tree path.
+     */
+    private Map<WatchKey, String> dirs = new HashMap<>();
+    /**
+     * the dirty log.
+     */
+    private Writer log;
+    /**
+     * the ignore rules.
+     */
+    private IgnoreMatcher ignored;
+    /**
+     * whether to stop.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Watch the working tree for MILLIS milliseconds, or until stopped
+     * if MILLIS is 0.
+     *
+     * @param millis long
+     * @throws IOException if the tree cannot be watched or the log
+     *                     written
+     */
+    void run(long millis) throws IOException {
+        long deadline = millis == 0 ? Long.MAX_VALUE
+                : System.currentTimeMillis() + millis;
+        File token = new File(DirtyTracker.TOKEN);
+        service = FileSystems.getDefault().newWatchService();
+        log = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(DirtyTracker.LOG),
+                StandardCharsets.UTF_8));
+        try {
+            ignored = IgnoreMatcher.current();
+            register(".gitlet");
+            registerTree(WorkTree.ROOT);
+            Utils.writeContents(token,
+                    Long.toString(System.currentTimeMillis()));
+            while (!stopped && System.currentTimeMillis() < deadline) {
+                WatchKey key = service.poll(TICK, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handle(key);
+                    log.flush();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            return;
+        } finally {
+            token.delete();
+            log.close();
+            service.close();
+        }
+    }
+
+    /**
+     * Stop watching.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Log the events of KEY and watch any new directory.
+     *
+     * @param key WatchKey
+     * @throws IOException if the log cannot be written
+     */
+    private void handle(WatchKey key) throws IOException {
+        String dir = dirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                record(DirtyTracker.LOST, "");
+                continue;
+            }
+            String name = event.context().toString();
+            String path = dir.equals(WorkTree.ROOT) ? name
+                    : dir + "/" + name;
+            if (dir.equals(".gitlet")) {
+                if (name.startsWith(DirtyTracker.COOKIE)
+                        && event.kind() == ENTRY_CREATE) {
+                    record(DirtyTracker.CREATED, path);
+                }
+                continue;
+            }
+            record(event.kind() == ENTRY_CREATE ? DirtyTracker.CREATED
+                    : event.kind() == ENTRY_DELETE ? DirtyTracker.DELETED
+                    : DirtyTracker.MODIFIED, path);
+            if (path.equals(WorkTree.IGNORE_FILE)) {
+                IgnoreMatcher.reset();
+                ignored = IgnoreMatcher.current();
+                registerTree(WorkTree.ROOT);
+                record(DirtyTracker.LOST, "");
+            } else if (event.kind() == ENTRY_CREATE
+                    && Files.isDirectory(Paths.get(path))
+                    && !ignored.isIgnored(path, name, true)) {
+                registerTree(path);
+            }
+        }
+        if (!key.reset()) {
+            dirs.remove(key);
+        }
+    }
+
+    /**
+     * Log a change of kind KIND to PATH.
+     *
+     * @param kind char
+     * @param path String
+     * @throws IOException if the log cannot be written
+     */
+    private void record(char kind, String path) throws IOException {
+        log.write(System.currentTimeMillis() + "\t" + kind + "\t" + path
+                + "\n");
+    }
+
+    /**
+     * Watch directory DIR and every directory under it that is not
+     * ignored, logging each as changed since its entries may be new.
+     *
+     * @param dir String
+     * @throws IOException if a directory cannot be watched
+     */
+    private void registerTree(String dir) throws IOException {
+        register(dir);
+        if (!dir.equals(WorkTree.ROOT)) {
+            record(DirtyTracker.CREATED, dir);
+        }
+        try (DirectoryStream<Path> entries =
+                     Files.newDirectoryStream(Paths.get(dir))) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                String path = dir.equals(WorkTree.ROOT) ? name
+                        : dir + "/" + name;
+                if (Files.isDirectory(entry) && !path.equals(".gitlet")
+                        && !ignored.isIgnored(path, name, true)) {
+                    registerTree(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Watch directory DIR itself.
+     *
+     * @param dir String
+     * @throws IOException if it cannot be watched
+     */
+    private void register(String dir) throws IOException {
+        Path path = Paths.get(dir);
+        dirs.put(path.register(service, ENTRY_CREATE, ENTRY_DELETE,
+                ENTRY_MODIFY), dir);
+    }
+
+}
@@ -0,0 +1,178 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The working tree: the files under the working directory, which may
+ * be nested in subdirectories. Files are named by their path from the
+ * working directory with / as separator, as they are in commits.
+ *
+ * The tree is walked in parallel, one task per directory, with
+ * directory listings from UntrackedCache. The .gitlet directory and
+ * every directory ignored by the rules of .gitletignore, as compiled
+ * by IgnoreMatcher, are pruned without being entered.
+ *
+ * @author Tony Hsu
+ */
+class WorkTree {
+
+    /**
+     * ignore file, relative to a working directory.
+     */
+    static final String IGNORE_FILE = ".gitletignore";
+    /**
+     * the repository directory, never part of the tree.
+     */
+    private static final String GITLET = ".gitlet";
+    /**
+     * name of the working directory itself.
+     */
+    static final String ROOT = ".";
+
+    /**
+     * Return every file of the working tree that is not ignored,
+     * sorted.
+     *
+     * @return List
+     */
+    static List<String> files() {
+        return files(ROOT);
+    }
+
+    /**
+     * Return every file under directory DIR of the working tree that
+     * is not ignored, sorted. DIR is a normalized path.
+     *
+     * @param dir String
+     * @return List
+     */
+    static List<String> files(String dir) {
+        List<String> result = ForkJoinPool.commonPool().invoke(
+                new Walk(dir, IgnoreMatcher.current()));
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Listing of one directory and, in parallel, its subdirectories.
+     */
+    private static class Walk extends RecursiveTask<List<String>> {
+        /**
+         * Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /**
+         * path of the directory.
+         */
+        private final String dir;
+        /**
+         * the ignore rules.
+         */
+        private final IgnoreMatcher ignored;
+
+        /**
+         * Walk constructor.
+         *
+         * @param path  String
+         * @param rules IgnoreMatcher
+         */
+        Walk(String path, IgnoreMatcher rules) {
+            dir = path;
+            ignored = rules;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<String> result = new ArrayList<>();
+            UntrackedCache.Listing listing = UntrackedCache.listing(dir);
+            if (listing == null) {
+                return result;
+            }
+            for (String name : listing.files()) {
+                String path = child(dir, name);
+                if (!ignored.isIgnored(path, name, false)) {
+                    result.add(path);
+                }
+            }
+            List<Walk> subtrees = new ArrayList<>();
+            for (String name : listing.directories()) {
+                String path = child(dir, name);
+                if (!path.equals(GITLET)
+                        && !ignored.isIgnored(path, name, true)) {
+                    Walk sub = new Walk(path, ignored);
+                    sub.fork();
+                    subtrees.add(sub);
+                }
+            }
+            for (Walk sub : subtrees) {
+                result.addAll(sub.join());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Return the path of entry NAME of directory DIR.
+     *
+     * @param dir  String
+     * @param name String
+     * @return String
+     */
+    private static String child(String dir, String name) {
+        return dir.equals(ROOT) ? name : dir + "/" + name;
+    }
+
+    /**
+     * Return NAME, a path given on the command line, as a path from
+     * the working directory with / as separator, ROOT for the working
+     * directory itself, or null if it is outside the working tree.
+     *
+     * @param name String
+     * @return String
+     */
+    static String normalize(String name) {
+        Path path = Paths.get(name).normalize();
+        if (path.isAbsolute()) {
+            path = Paths.get("").toAbsolutePath().relativize(path);
+        }
+        String result = path.toString().replace(File.separatorChar, '/');
+        if (result.isEmpty()) {
+            return ROOT;
+        }
+        if (result.equals("..") || result.startsWith("../")
+                || result.equals(GITLET) || result.startsWith(GITLET + "/")) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Delete file NAME of the working tree, then each directory above
+     * it that is left empty. Refuses, with an IllegalArgumentException,
+     * unless the working directory holds a .gitlet directory.
+     *
+     * @param name String
+     * @return boolean
+     */
+    static boolean delete(String name) {
+        if (!new File(GITLET).isDirectory()) {
+            throw new IllegalArgumentException("not .gitlet working directory");
+        }
+        File file = new File(name);
+        if (file.isDirectory() || !file.delete()) {
+            return false;
+        }
+        for (File dir = file.getParentFile(); dir != null
+                && dir.delete(); dir = dir.getParentFile()) {
+            continue;
+        }
+        return true;
+    }
+
+}
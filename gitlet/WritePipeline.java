@@ -0,0 +1,123 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded producer/consumer pipeline for hashing and storing files.
+ * The caller submits one task per file and worker threads run them,
+ * so reading, hashing and writing of different files overlap. At most
+ * a fixed number of tasks are queued or running at once: a caller
+ * that gets ahead of the workers blocks in submit until one finishes,
+ * which bounds the memory held by pending writes.
+ *
+ * Objects are written without being forced to disk; the caller makes
+ * them durable with a single ObjectStore.sync before any ref refers to
+ * them.
+ *
+ * @author Tony Hsu
+ */
+class WritePipeline implements AutoCloseable {
+
+    /**
+     * tasks allowed in the pipeline per worker.
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * the workers.
+     */
+    private final ExecutorService pool;
+    /**
+     * free places in the pipeline.
+     */
+    private final Semaphore slots;
+
+    /**
+     * WritePipeline constructor, with one worker per processor.
+     */
+    WritePipeline() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * WritePipeline constructor.
+     *
+     * @param threads int
+     */
+    WritePipeline(int threads) {
+        pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        slots = new Semaphore(Math.max(1, threads) * DEPTH);
+    }
+
+    /**
+     * Queue TASK, waiting first while the pipeline is full, and return
+     * its pending result.
+     *
+     * @param task Callable
+     * @return Future
+     * @throws IOException if interrupted while waiting
+     */
+    Future<String> submit(Callable<String> task) throws IOException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+        try {
+            return pool.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the result of PENDING, a task of this pipeline, once it
+     * is done.
+     *
+     * @param pending Future
+     * @return String
+     * @throws IOException if the task failed
+     */
+    static String result(Future<String> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Wait for every queued task to finish and stop the workers.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}